@@ -1,6 +1,7 @@
 package com.hotel.notification.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.events.amqp.EventMessageConverter;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
@@ -33,17 +34,18 @@ public class RabbitMQConfig {
                 .to(orchestrationExchange);
     }
 
+    /** BookingProcessedEvent приходит в JSON или protobuf — формат выбирает оркестратор. */
     @Bean
-    public MessageConverter jsonMessageConverter() {
+    public MessageConverter eventMessageConverter() {
         ObjectMapper mapper = new ObjectMapper();
         mapper.findAndRegisterModules();
-        return new Jackson2JsonMessageConverter(mapper);
+        return new EventMessageConverter(new Jackson2JsonMessageConverter(mapper), MessageProperties.CONTENT_TYPE_JSON);
     }
 
     @Bean
-    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessageConverter eventMessageConverter) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
-        template.setMessageConverter(jsonMessageConverter());
+        template.setMessageConverter(eventMessageConverter);
         return template;
     }
 }
\ No newline at end of file
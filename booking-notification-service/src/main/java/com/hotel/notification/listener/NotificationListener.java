@@ -3,7 +3,9 @@ package com.hotel.notification.listener;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hotel.events.BookingProcessedEvent;
+import com.hotel.events.metrics.PipelineLag;
 import com.hotel.notification.websocket.NotificationWebSocketHandler;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
@@ -20,10 +22,12 @@ public class NotificationListener {
 
     private final NotificationWebSocketHandler webSocketHandler;
     private final ObjectMapper objectMapper;
+    private final PipelineLag notifiedLag;
 
-    public NotificationListener(NotificationWebSocketHandler webSocketHandler) {
+    public NotificationListener(NotificationWebSocketHandler webSocketHandler, MeterRegistry meterRegistry) {
         this.webSocketHandler = webSocketHandler;
         this.objectMapper = new ObjectMapper();
+        this.notifiedLag = new PipelineLag(meterRegistry, "notified");
     }
 
     @RabbitListener(queues = "q.notification.orchestration")
@@ -41,6 +45,7 @@ public class NotificationListener {
             }
 
             sendWebSocketNotification(event);
+            notifiedLag.record(event.bookingCreatedAt(), event.timestamp());
 
             log.info(" Все уведомления отправлены для booking_id: {}", event.bookingId());
 
@@ -0,0 +1,239 @@
+package com.hotel.booking.concurrency;
+
+import com.hotel.booking.config.RabbitMQConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD-контроллер конкурентности listener'а orchestrator-booking-created-queue.
+ * Лимит одновременно обрабатываемых событий растёт на increaseStep, пока латентность discount-service
+ * держится у базовой и в очереди есть работа, и умножается на backoffRatio при росте латентности
+ * или сбоях. Лимит соблюдается сразу через acquire/release, число консьюмеров и prefetch
+ * подстраиваются под него (prefetch применяется к консьюмерам, запущенным после изменения).
+ */
+@Component
+public class AdaptiveConcurrencyController {
+
+    public static final String LISTENER_ID = "bookingCreatedListener";
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyController.class);
+    private static final long ACQUIRE_POLL_MS = 100;
+    private static final double BASELINE_DRIFT = 1.02;
+
+    private final DownstreamLatencyTracker latencyTracker;
+    private final RabbitListenerEndpointRegistry listenerRegistry;
+    private final AmqpAdmin amqpAdmin;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int increaseStep;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+    private final int prefetchPerConsumer;
+    private final int maxConsumers;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private int inFlight;
+    private int peakInFlight;
+    private volatile int limit;
+
+    private volatile int consumers = 1;
+    private volatile int prefetch;
+    private volatile long queueDepth = -1;
+    private double baselineMs;
+    private long lastFailures;
+
+    private final Counter increased;
+    private final Counter decreased;
+    private final Counter held;
+
+    public AdaptiveConcurrencyController(DownstreamLatencyTracker latencyTracker,
+                                         RabbitListenerEndpointRegistry listenerRegistry,
+                                         AmqpAdmin amqpAdmin,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${orchestrator.concurrency.min-limit:8}") int minLimit,
+                                         @Value("${orchestrator.concurrency.max-limit:512}") int maxLimit,
+                                         @Value("${orchestrator.concurrency.initial-limit:64}") int initialLimit,
+                                         @Value("${orchestrator.concurrency.increase-step:4}") int increaseStep,
+                                         @Value("${orchestrator.concurrency.backoff-ratio:0.75}") double backoffRatio,
+                                         @Value("${orchestrator.concurrency.latency-tolerance:2.0}") double latencyTolerance,
+                                         @Value("${orchestrator.concurrency.prefetch-per-consumer:50}") int prefetchPerConsumer,
+                                         @Value("${orchestrator.concurrency.max-consumers:8}") int maxConsumers) {
+        this.latencyTracker = latencyTracker;
+        this.listenerRegistry = listenerRegistry;
+        this.amqpAdmin = amqpAdmin;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.increaseStep = increaseStep;
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.prefetchPerConsumer = prefetchPerConsumer;
+        this.maxConsumers = maxConsumers;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.prefetch = prefetchPerConsumer;
+
+        Gauge.builder("orchestrator.concurrency.limit", this, c -> c.limit)
+                .description("Текущий лимит одновременно обрабатываемых событий")
+                .register(meterRegistry);
+        Gauge.builder("orchestrator.concurrency.in-flight", this, AdaptiveConcurrencyController::inFlight)
+                .register(meterRegistry);
+        Gauge.builder("orchestrator.concurrency.consumers", this, c -> c.consumers)
+                .register(meterRegistry);
+        Gauge.builder("orchestrator.concurrency.prefetch", this, c -> c.prefetch)
+                .register(meterRegistry);
+        Gauge.builder("orchestrator.concurrency.queue-depth", this, c -> c.queueDepth)
+                .register(meterRegistry);
+        this.increased = adjustmentCounter(meterRegistry, "increase");
+        this.decreased = adjustmentCounter(meterRegistry, "decrease");
+        this.held = adjustmentCounter(meterRegistry, "hold");
+    }
+
+    /**
+     * Занять слот под обработку события. Блокирует listener-поток, пока лимит исчерпан —
+     * неподтверждённые сообщения остаются в prefetch-буфере консьюмера.
+     *
+     * @return false, если поток прерван (остановка контейнера) — сообщение нужно вернуть в очередь
+     */
+    public boolean acquire() {
+        lock.lock();
+        try {
+            while (inFlight >= limit) {
+                try {
+                    released.await(ACQUIRE_POLL_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            inFlight++;
+            peakInFlight = Math.max(peakInFlight, inFlight);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alignContainer() {
+        setLimit(limit);
+    }
+
+    @Scheduled(initialDelayString = "${orchestrator.concurrency.adjust-interval-ms:2000}",
+            fixedDelayString = "${orchestrator.concurrency.adjust-interval-ms:2000}")
+    public void adjust() {
+        queueDepth = readQueueDepth();
+        double latencyMs = latencyTracker.ewmaMillis();
+        long failures = latencyTracker.failures();
+        long newFailures = failures - lastFailures;
+        lastFailures = failures;
+
+        int peak;
+        lock.lock();
+        try {
+            peak = peakInFlight;
+            peakInFlight = inFlight;
+        } finally {
+            lock.unlock();
+        }
+
+        if (latencyMs > 0) {
+            baselineMs = baselineMs == 0 ? latencyMs : Math.min(baselineMs * BASELINE_DRIFT, latencyMs);
+        }
+
+        int current = limit;
+        int next = current;
+        if (newFailures > 0 || (baselineMs > 0 && latencyMs > baselineMs * latencyTolerance)) {
+            next = Math.max(minLimit, (int) (current * backoffRatio));
+            decreased.increment();
+        } else if (queueDepth > 0 || peak >= current * 0.8) {
+            next = Math.min(maxLimit, current + increaseStep);
+            increased.increment();
+        } else {
+            held.increment();
+        }
+
+        if (next != current) {
+            log.debug("Лимит конкурентности {} → {}: latency={}мс, baseline={}мс, сбоев={}, очередь={}, пик={}",
+                    current, next, Math.round(latencyMs), Math.round(baselineMs), newFailures, queueDepth, peak);
+            setLimit(next);
+        }
+    }
+
+    private void setLimit(int next) {
+        lock.lock();
+        try {
+            limit = next;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        int targetConsumers = Math.max(1, Math.min(maxConsumers, (next + prefetchPerConsumer - 1) / prefetchPerConsumer));
+        int targetPrefetch = Math.max(1, (next + targetConsumers - 1) / targetConsumers);
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(LISTENER_ID);
+        if (container instanceof SimpleMessageListenerContainer simple) {
+            simple.setPrefetchCount(targetPrefetch);
+            if (targetConsumers != consumers) {
+                simple.setConcurrentConsumers(targetConsumers);
+                log.info("Консьюмеров orchestrator-booking-created-queue: {} → {}, prefetch {}",
+                        consumers, targetConsumers, targetPrefetch);
+            }
+        }
+        consumers = targetConsumers;
+        prefetch = targetPrefetch;
+    }
+
+    private long readQueueDepth() {
+        try {
+            QueueInformation info = amqpAdmin.getQueueInfo(RabbitMQConfig.QUEUE_BOOKING_CREATED);
+            return info != null ? info.getMessageCount() : -1;
+        } catch (Exception e) {
+            log.debug("Не удалось прочитать глубину очереди: {}", e.getMessage());
+            return -1;
+        }
+    }
+
+    private int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Counter adjustmentCounter(MeterRegistry meterRegistry, String direction) {
+        return Counter.builder("orchestrator.concurrency.adjustments")
+                .description("Решения контроллера конкурентности")
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+}
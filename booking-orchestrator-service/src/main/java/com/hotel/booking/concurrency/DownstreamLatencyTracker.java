@@ -0,0 +1,129 @@
+package com.hotel.booking.concurrency;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Латентность вызовов discount-service по операциям: EWMA для быстрой реакции контроллера
+ * конкурентности и таймер orchestrator.downstream.latency с перцентилями для метрик.
+ * Ошибками перегрузки считаются все сбои, кроме INVALID_ARGUMENT — это ответ, а не таймаут.
+ */
+@Component
+public class DownstreamLatencyTracker {
+
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+
+    public DownstreamLatencyTracker(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void record(String operation, long durationNanos, Throwable error) {
+        Operation op = operations.computeIfAbsent(operation, this::newOperation);
+        op.timer.record(durationNanos, TimeUnit.NANOSECONDS);
+        op.updateEwma(durationNanos);
+        if (error != null && !isClientError(error)) {
+            op.failures.increment();
+        }
+    }
+
+    /** Максимальная EWMA латентности среди операций, мс; 0 — данных ещё нет. */
+    public double ewmaMillis() {
+        double max = 0;
+        for (Operation op : operations.values()) {
+            max = Math.max(max, op.ewmaMillis());
+        }
+        return max;
+    }
+
+    public double ewmaMillis(String operation) {
+        Operation op = operations.get(operation);
+        return op != null ? op.ewmaMillis() : 0;
+    }
+
+    /** Перцентиль латентности операции по скользящему окну таймера, мс; 0 — данных ещё нет. */
+    public double percentileMillis(String operation, double percentile) {
+        Operation op = operations.get(operation);
+        if (op == null) {
+            return 0;
+        }
+        for (ValueAtPercentile value : op.timer.takeSnapshot().percentileValues()) {
+            if (value.percentile() == percentile) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return 0;
+    }
+
+    public long count(String operation) {
+        Operation op = operations.get(operation);
+        return op != null ? op.timer.count() : 0;
+    }
+
+    /** Сумма сбоев по всем операциям с момента старта. */
+    public long failures() {
+        long total = 0;
+        for (Operation op : operations.values()) {
+            total += op.failures.sum();
+        }
+        return total;
+    }
+
+    private Operation newOperation(String name) {
+        Timer timer = Timer.builder("orchestrator.downstream.latency")
+                .description("Латентность вызовов discount-service")
+                .tag("operation", name)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        return new Operation(timer);
+    }
+
+    private static boolean isClientError(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof StatusRuntimeException sre
+                && sre.getStatus().getCode() == Status.Code.INVALID_ARGUMENT;
+    }
+
+    private static final class Operation {
+        final Timer timer;
+        final LongAdder failures = new LongAdder();
+        final AtomicLong ewmaBits = new AtomicLong(Double.doubleToLongBits(-1));
+
+        Operation(Timer timer) {
+            this.timer = timer;
+        }
+
+        void updateEwma(long durationNanos) {
+            long current;
+            long next;
+            do {
+                current = ewmaBits.get();
+                double ewma = Double.longBitsToDouble(current);
+                double updated = ewma < 0 ? durationNanos : ewma + EWMA_ALPHA * (durationNanos - ewma);
+                next = Double.doubleToLongBits(updated);
+            } while (!ewmaBits.compareAndSet(current, next));
+        }
+
+        double ewmaMillis() {
+            double ewma = Double.longBitsToDouble(ewmaBits.get());
+            return ewma < 0 ? 0 : ewma / 1_000_000.0;
+        }
+    }
+}
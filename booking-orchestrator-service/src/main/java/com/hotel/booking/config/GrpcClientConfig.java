@@ -0,0 +1,30 @@
+package com.hotel.booking.config;
+
+import com.hotel.booking.grpc.PowerOfTwoChoicesLoadBalancerProvider;
+import net.devh.boot.grpc.client.channelfactory.GrpcChannelConfigurer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class GrpcClientConfig {
+
+    /**
+     * Канал discount-service балансируется политикой power_of_two_choices по всем адресам,
+     * которые вернул резолвер: static://host1:port,host2:port или dns:///host:port.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "orchestrator.discount-lb.enabled", havingValue = "true", matchIfMissing = true)
+    public GrpcChannelConfigurer discountServiceLoadBalancing(
+            @Value("${orchestrator.discount-lb.ejection-threshold:5}") int ejectionThreshold,
+            @Value("${orchestrator.discount-lb.ejection-time-ms:30000}") long ejectionTimeMs,
+            @Value("${orchestrator.discount-lb.ewma-decay-ms:10000}") long ewmaDecayMs) {
+        return (channelBuilder, name) -> {
+            if ("discount-service".equals(name)) {
+                channelBuilder.defaultServiceConfig(PowerOfTwoChoicesLoadBalancerProvider.serviceConfig(
+                        ejectionThreshold, ejectionTimeMs, ewmaDecayMs));
+            }
+        };
+    }
+}
@@ -1,10 +1,16 @@
 package com.hotel.booking.config;
 
+import com.hotel.events.amqp.EventMessageConverter;
+import com.hotel.events.amqp.retry.DlqReplayer;
+import com.hotel.events.amqp.retry.RetryPolicy;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -58,20 +64,69 @@ public class RabbitMQConfig {
                 .with("dlq.booking.created");
     }
 
+    /**
+     * Сбойные BookingCreatedEvent ждут в TTL-очередях задержки с экспоненциальным ростом паузы
+     * и возвращаются в QUEUE_BOOKING_CREATED; после max-attempts — в parking lot.
+     */
+    @Bean
+    public RetryPolicy bookingCreatedRetryPolicy(
+            @Value("${orchestrator.retry.initial-delay-ms:1000}") long initialDelayMs,
+            @Value("${orchestrator.retry.multiplier:4}") double multiplier,
+            @Value("${orchestrator.retry.max-attempts:5}") int maxAttempts,
+            @Value("${orchestrator.retry.jitter:0.2}") double jitter) {
+        return new RetryPolicy(QUEUE_BOOKING_CREATED, initialDelayMs, multiplier, maxAttempts, jitter);
+    }
+
+    @Bean
+    public Declarables bookingCreatedRetryTopology(RetryPolicy bookingCreatedRetryPolicy) {
+        return bookingCreatedRetryPolicy.declarables();
+    }
+
+    @Bean
+    public DlqReplayer dlqReplayer(RabbitTemplate rabbitTemplate,
+                                   @Value("${orchestrator.dlq-replay.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        return new DlqReplayer(rabbitTemplate, confirmTimeoutMs);
+    }
+
     @Bean
     public FanoutExchange orchestrationExchange() {
         return new FanoutExchange(FANOUT_EXCHANGE, true, false);
     }
 
+    /**
+     * events.content-type — формат публикуемого BookingProcessedEvent; переключать на protobuf,
+     * когда gateway, аудит и уведомления уже читают оба формата.
+     */
     @Bean
-    public MessageConverter jsonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter eventMessageConverter(
+            @Value("${events.content-type:application/json}") String producerContentType) {
+        return new EventMessageConverter(new Jackson2JsonMessageConverter(), producerContentType);
     }
 
     @Bean
-    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessageConverter eventMessageConverter) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
-        template.setMessageConverter(jsonMessageConverter());
+        template.setMessageConverter(eventMessageConverter);
+        // возвраты unroutable-сообщений попадают в CorrelationData публикации
+        template.setMandatory(true);
         return template;
     }
+
+    /**
+     * Фабрика для асинхронной обработки: listener только запускает конвейер и возвращает поток,
+     * ack/nack отправляется по завершении. Число консьюмеров и prefetch дальше подстраивает
+     * AdaptiveConcurrencyController.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory orchestratorContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${orchestrator.concurrency.prefetch-per-consumer:50}") int prefetch) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setPrefetchCount(prefetch);
+        return factory;
+    }
+
 }
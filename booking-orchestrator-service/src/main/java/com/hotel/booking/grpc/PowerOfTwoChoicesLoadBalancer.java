@@ -0,0 +1,271 @@
+package com.hotel.booking.grpc;
+
+import io.grpc.Attributes;
+import io.grpc.ClientStreamTracer;
+import io.grpc.ConnectivityState;
+import io.grpc.ConnectivityStateInfo;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.LoadBalancer;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Power of two choices: для каждого RPC берутся два случайных READY-эндпоинта и выбирается
+ * тот, у кого меньше (незавершённые запросы + 1) × peak-EWMA латентности унарных вызовов.
+ * Эндпоинт с ejectionThreshold сбоями подряд исключается из выбора на ejectionTimeMs,
+ * но последний доступный эндпоинт не исключается никогда.
+ * <p>
+ * Выбор делается при старте RPC: долгоживущий стрим остаётся на своём эндпоинте до закрытия,
+ * поэтому балансируются только унарные вызовы (см. DiscountStreamClient).
+ */
+final class PowerOfTwoChoicesLoadBalancer extends LoadBalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(PowerOfTwoChoicesLoadBalancer.class);
+    private static final Set<Status.Code> FAILURE_CODES = Set.of(
+            Status.Code.UNAVAILABLE, Status.Code.DEADLINE_EXCEEDED, Status.Code.INTERNAL, Status.Code.UNKNOWN);
+
+    private final Helper helper;
+    private final Map<EquivalentAddressGroup, Endpoint> endpoints = new HashMap<>();
+    private PowerOfTwoChoicesLoadBalancerProvider.Config config = PowerOfTwoChoicesLoadBalancerProvider.Config.DEFAULT;
+    private Status lastError = Status.UNAVAILABLE.withDescription("Нет доступных эндпоинтов");
+
+    PowerOfTwoChoicesLoadBalancer(Helper helper) {
+        this.helper = helper;
+    }
+
+    @Override
+    public Status acceptResolvedAddresses(ResolvedAddresses resolvedAddresses) {
+        if (resolvedAddresses.getAddresses().isEmpty()) {
+            Status error = Status.UNAVAILABLE.withDescription("Резолвер не вернул адресов");
+            handleNameResolutionError(error);
+            return error;
+        }
+        if (resolvedAddresses.getLoadBalancingPolicyConfig()
+                instanceof PowerOfTwoChoicesLoadBalancerProvider.Config parsed) {
+            config = parsed;
+        }
+
+        Set<EquivalentAddressGroup> current = new HashSet<>();
+        for (EquivalentAddressGroup group : resolvedAddresses.getAddresses()) {
+            EquivalentAddressGroup key = new EquivalentAddressGroup(group.getAddresses());
+            current.add(key);
+            if (!endpoints.containsKey(key)) {
+                Endpoint endpoint = new Endpoint(key);
+                endpoints.put(key, endpoint);
+                endpoint.subchannel = helper.createSubchannel(CreateSubchannelArgs.newBuilder()
+                        .setAddresses(group)
+                        .setAttributes(Attributes.EMPTY)
+                        .build());
+                endpoint.subchannel.start(state -> onStateChange(endpoint, state));
+                endpoint.subchannel.requestConnection();
+                log.info("Добавлен эндпоинт discount-service: {}", key.getAddresses());
+            }
+        }
+
+        endpoints.entrySet().removeIf(entry -> {
+            if (current.contains(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().subchannel.shutdown();
+            log.info("Удалён эндпоинт discount-service: {}", entry.getKey().getAddresses());
+            return true;
+        });
+
+        updateBalancingState();
+        return Status.OK;
+    }
+
+    @Override
+    public void handleNameResolutionError(Status error) {
+        lastError = error;
+        if (endpoints.values().stream().noneMatch(Endpoint::isReady)) {
+            helper.updateBalancingState(ConnectivityState.TRANSIENT_FAILURE,
+                    new SubchannelPicker() {
+                        @Override
+                        public PickResult pickSubchannel(PickSubchannelArgs args) {
+                            return PickResult.withError(error);
+                        }
+                    });
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        endpoints.values().forEach(endpoint -> endpoint.subchannel.shutdown());
+        endpoints.clear();
+    }
+
+    private void onStateChange(Endpoint endpoint, ConnectivityStateInfo state) {
+        if (endpoints.get(endpoint.key) != endpoint) {
+            return;
+        }
+        endpoint.state = state;
+        if (state.getState() == ConnectivityState.IDLE) {
+            endpoint.subchannel.requestConnection();
+        } else if (state.getState() == ConnectivityState.TRANSIENT_FAILURE) {
+            lastError = state.getStatus();
+        }
+        updateBalancingState();
+    }
+
+    private void updateBalancingState() {
+        long now = System.nanoTime();
+        List<Endpoint> ready = new ArrayList<>();
+        List<Endpoint> healthy = new ArrayList<>();
+        boolean connecting = false;
+        for (Endpoint endpoint : endpoints.values()) {
+            if (endpoint.isReady()) {
+                ready.add(endpoint);
+                if (!endpoint.isEjected(now)) {
+                    healthy.add(endpoint);
+                }
+            } else if (endpoint.state.getState() != ConnectivityState.TRANSIENT_FAILURE) {
+                connecting = true;
+            }
+        }
+
+        if (!ready.isEmpty()) {
+            helper.updateBalancingState(ConnectivityState.READY, new Picker(healthy.isEmpty() ? ready : healthy));
+        } else if (connecting) {
+            helper.updateBalancingState(ConnectivityState.CONNECTING, new SubchannelPicker() {
+                @Override
+                public PickResult pickSubchannel(PickSubchannelArgs args) {
+                    return PickResult.withNoResult();
+                }
+            });
+        } else {
+            Status error = lastError;
+            helper.updateBalancingState(ConnectivityState.TRANSIENT_FAILURE, new SubchannelPicker() {
+                @Override
+                public PickResult pickSubchannel(PickSubchannelArgs args) {
+                    return PickResult.withError(error);
+                }
+            });
+        }
+    }
+
+    private void eject(Endpoint endpoint) {
+        long ejectionNanos = TimeUnit.MILLISECONDS.toNanos(config.ejectionTimeMs());
+        endpoint.ejectedUntil = System.nanoTime() + ejectionNanos;
+        log.warn("Эндпоинт discount-service {} исключён на {}мс после {} сбоев подряд",
+                endpoint.key.getAddresses(), config.ejectionTimeMs(), config.ejectionThreshold());
+        helper.getSynchronizationContext().execute(this::updateBalancingState);
+        helper.getSynchronizationContext().schedule(this::updateBalancingState,
+                ejectionNanos, TimeUnit.NANOSECONDS, helper.getScheduledExecutorService());
+    }
+
+    private final class Picker extends SubchannelPicker {
+        private final List<Endpoint> candidates;
+
+        Picker(List<Endpoint> candidates) {
+            this.candidates = List.copyOf(candidates);
+        }
+
+        @Override
+        public PickResult pickSubchannel(PickSubchannelArgs args) {
+            Endpoint chosen;
+            int size = candidates.size();
+            if (size == 1) {
+                chosen = candidates.get(0);
+            } else {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int first = random.nextInt(size);
+                int second = random.nextInt(size - 1);
+                if (second >= first) {
+                    second++;
+                }
+                Endpoint a = candidates.get(first);
+                Endpoint b = candidates.get(second);
+                chosen = a.load() <= b.load() ? a : b;
+            }
+            boolean unary = args.getMethodDescriptor().getType() == MethodDescriptor.MethodType.UNARY;
+            return PickResult.withSubchannel(chosen.subchannel, chosen.tracerFactory(unary));
+        }
+    }
+
+    private final class Endpoint {
+        final EquivalentAddressGroup key;
+        Subchannel subchannel;
+        volatile ConnectivityStateInfo state = ConnectivityStateInfo.forNonError(ConnectivityState.IDLE);
+        volatile long ejectedUntil;
+
+        final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicInteger consecutiveFailures = new AtomicInteger();
+        // peak-EWMA латентности в наносекундах и время последнего обновления
+        final AtomicLong ewmaNanos = new AtomicLong();
+        final AtomicLong ewmaStamp = new AtomicLong(System.nanoTime());
+
+        Endpoint(EquivalentAddressGroup key) {
+            this.key = key;
+        }
+
+        boolean isReady() {
+            return state.getState() == ConnectivityState.READY;
+        }
+
+        boolean isEjected(long now) {
+            return ejectedUntil != 0 && now - ejectedUntil < 0;
+        }
+
+        double load() {
+            // у нового эндпоинта EWMA ещё 0: пусть получит трафик и наберёт статистику
+            return (outstanding.get() + 1) * (double) Math.max(1, ewmaNanos.get());
+        }
+
+        ClientStreamTracer.Factory tracerFactory(boolean unary) {
+            return new ClientStreamTracer.Factory() {
+                @Override
+                public ClientStreamTracer newClientStreamTracer(ClientStreamTracer.StreamInfo info, Metadata headers) {
+                    long start = System.nanoTime();
+                    outstanding.incrementAndGet();
+                    return new ClientStreamTracer() {
+                        @Override
+                        public void streamClosed(Status status) {
+                            outstanding.decrementAndGet();
+                            // длительность долгоживущих стримов — не латентность бэкенда
+                            if (unary && status.isOk()) {
+                                observe(System.nanoTime() - start);
+                            }
+                            onCompleted(status);
+                        }
+                    };
+                }
+            };
+        }
+
+        private void observe(long rttNanos) {
+            long now = System.nanoTime();
+            long last = ewmaStamp.getAndSet(now);
+            double weight = Math.exp(-(double) (now - last) / TimeUnit.MILLISECONDS.toNanos(config.ewmaDecayMs()));
+            ewmaNanos.updateAndGet(current -> rttNanos > current
+                    ? rttNanos
+                    : (long) (current * weight + rttNanos * (1 - weight)));
+        }
+
+        private void onCompleted(Status status) {
+            if (!FAILURE_CODES.contains(status.getCode())) {
+                consecutiveFailures.set(0);
+                return;
+            }
+            if (consecutiveFailures.incrementAndGet() >= config.ejectionThreshold()
+                    && !isEjected(System.nanoTime())) {
+                consecutiveFailures.set(0);
+                eject(this);
+            }
+        }
+    }
+}
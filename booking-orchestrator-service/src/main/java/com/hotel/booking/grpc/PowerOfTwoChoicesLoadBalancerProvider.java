@@ -0,0 +1,77 @@
+package com.hotel.booking.grpc;
+
+import io.grpc.LoadBalancer;
+import io.grpc.LoadBalancerProvider;
+import io.grpc.NameResolver.ConfigOrError;
+import io.grpc.Status;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Политика балансировки "power_of_two_choices" для gRPC-каналов. Регистрируется через
+ * META-INF/services, параметры приходят из loadBalancingConfig сервис-конфига канала.
+ */
+public class PowerOfTwoChoicesLoadBalancerProvider extends LoadBalancerProvider {
+
+    public static final String POLICY_NAME = "power_of_two_choices";
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public int getPriority() {
+        return 5;
+    }
+
+    @Override
+    public String getPolicyName() {
+        return POLICY_NAME;
+    }
+
+    @Override
+    public LoadBalancer newLoadBalancer(LoadBalancer.Helper helper) {
+        return new PowerOfTwoChoicesLoadBalancer(helper);
+    }
+
+    @Override
+    public ConfigOrError parseLoadBalancingPolicyConfig(Map<String, ?> rawConfig) {
+        try {
+            return ConfigOrError.fromConfig(new Config(
+                    number(rawConfig, "ejectionThreshold", 5).intValue(),
+                    number(rawConfig, "ejectionTimeMs", 30_000).longValue(),
+                    number(rawConfig, "ewmaDecayMs", 10_000).longValue()));
+        } catch (RuntimeException e) {
+            return ConfigOrError.fromError(Status.INVALID_ARGUMENT
+                    .withDescription("Некорректный конфиг " + POLICY_NAME + ": " + e.getMessage()));
+        }
+    }
+
+    /** Сервис-конфиг канала, включающий эту политику, — для ManagedChannelBuilder.defaultServiceConfig. */
+    public static Map<String, ?> serviceConfig(int ejectionThreshold, long ejectionTimeMs, long ewmaDecayMs) {
+        Map<String, Object> policy = new LinkedHashMap<>();
+        // в JSON сервис-конфига все числа — Double
+        policy.put("ejectionThreshold", (double) ejectionThreshold);
+        policy.put("ejectionTimeMs", (double) ejectionTimeMs);
+        policy.put("ewmaDecayMs", (double) ewmaDecayMs);
+        return Map.of("loadBalancingConfig", List.of(Map.of(POLICY_NAME, policy)));
+    }
+
+    private static Number number(Map<String, ?> rawConfig, String key, long defaultValue) {
+        Object value = rawConfig != null ? rawConfig.get(key) : null;
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Number number) {
+            return number;
+        }
+        throw new IllegalArgumentException(key + " должен быть числом");
+    }
+
+    record Config(int ejectionThreshold, long ejectionTimeMs, long ewmaDecayMs) {
+        static final Config DEFAULT = new Config(5, 30_000, 10_000);
+    }
+}
@@ -1,169 +1,299 @@
 package com.hotel.booking.service;
 
+import com.hotel.booking.concurrency.AdaptiveConcurrencyController;
 import com.hotel.booking.dto.BookingResult;
 import com.hotel.booking.dto.enums.BookingStatus;
+import com.hotel.booking.service.SagaMetrics.Stage;
 import com.hotel.events.BookingCreatedEvent;
 import com.hotel.events.BookingProcessedEvent;
+import com.hotel.events.amqp.Deadlines;
+import com.hotel.events.amqp.retry.RetryPolicy;
 import com.hotel.grpc.discount.*;
+import com.rabbitmq.client.Channel;
+import io.grpc.Deadline;
 import io.grpc.StatusRuntimeException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Оркестрация BookingCreatedEvent без блокировок: скидка и рекомендации запрашиваются
+ * параллельно, результат публикуется с подтверждением брокера, ack/nack — по завершении конвейера.
+ * Listener-поток занят только на время проверки идемпотентности и запуска gRPC-вызовов.
+ * Бюджет саги приходит в заголовке x-deadline: gRPC-дедлайны считаются от остатка,
+ * а просроченное бронирование отклоняется без обращения к discount-service. Отложенные повторы
+ * приходят без дедлайна и обрабатываются полностью.
+ */
 @Service
 public class BookingOrchestratorService {
 
     private static final Logger log = LoggerFactory.getLogger(BookingOrchestratorService.class);
     private static final String FANOUT_EXCHANGE = "booking-orchestration-fanout";
 
-    private final RabbitTemplate rabbitTemplate;
+    private final ConfirmedEventPublisher eventPublisher;
     private final IdempotencyService idempotencyService;
     private final DiscountClientService discountClient;
+    private final AdaptiveConcurrencyController concurrency;
+    private final SagaMetrics metrics;
+    private final RetryPolicy retryPolicy;
+    private final long minBudgetMs;
 
     public BookingOrchestratorService(
-            RabbitTemplate rabbitTemplate,
-            IdempotencyService idempotencyService, DiscountClientService discountClientService) {
-        this.rabbitTemplate = rabbitTemplate;
+            ConfirmedEventPublisher eventPublisher,
+            IdempotencyService idempotencyService, DiscountClientService discountClientService,
+            AdaptiveConcurrencyController concurrency, SagaMetrics metrics, RetryPolicy retryPolicy,
+            @Value("${orchestrator.deadline.min-budget-ms:100}") long minBudgetMs) {
+        this.eventPublisher = eventPublisher;
         this.idempotencyService = idempotencyService;
         this.discountClient = discountClientService;
+        this.concurrency = concurrency;
+        this.metrics = metrics;
+        this.retryPolicy = retryPolicy;
+        this.minBudgetMs = minBudgetMs;
     }
 
-    @RabbitListener(queues = "orchestrator-booking-created-queue")
-    public void consumeBookingCreatedEvent(@Payload BookingCreatedEvent event) {
-        if (!idempotencyService.tryAcquire(event.bookingId())) {
-            log.warn(" DUPLICATE EVENT IGNORED: bookingId={}", event.bookingId());
+    @RabbitListener(id = AdaptiveConcurrencyController.LISTENER_ID, queues = "orchestrator-booking-created-queue",
+            containerFactory = "orchestratorContainerFactory")
+    public void consumeBookingCreatedEvent(@Payload BookingCreatedEvent event, Message message, Channel channel,
+                                           @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
+        if (!concurrency.acquire()) {
+            nack(channel, deliveryTag, event.bookingId());
             return;
         }
 
+        metrics.time(Stage.IDEMPOTENCY, idempotencyService.tryAcquire(event.bookingId())).whenComplete((acquired, error) -> {
+            if (error != null) {
+                log.error("❌ Ошибка проверки идемпотентности: bookingId={}", event.bookingId(), unwrap(error));
+                concurrency.release();
+                retry(channel, deliveryTag, message, event.bookingId(), unwrap(error));
+            } else if (!acquired) {
+                log.warn(" DUPLICATE EVENT IGNORED: bookingId={}", event.bookingId());
+                concurrency.release();
+                ack(channel, deliveryTag, event.bookingId());
+            } else {
+                orchestrate(event, message, channel, deliveryTag);
+            }
+        });
+    }
+
+    private void orchestrate(BookingCreatedEvent event, Message message, Channel channel, long deliveryTag) {
         log.info(" Получено событие BookingCreatedEvent: bookingId={}", event.bookingId());
 
+        CompletableFuture<BookingResult> result;
         try {
-            if (!validateBookingEvent(event)) {
-                log.warn(" Событие не прошло валидацию: {}", event.bookingId());
-                BookingResult result = BookingResult.rejected(
-                        event.bookingId(),
-                        0.0,
-                        "Невалидные данные события"
-                );
-                publishBookingProcessedEvent(event, result);
-                return;
-            }
-
-            double basePrice = event.basePrice();
-            int nights = event.nights();
+            result = process(event, Deadlines.remainingMillis(message.getMessageProperties()));
+        } catch (Exception e) {
+            result = CompletableFuture.failedFuture(e);
+        }
 
-            log.info(" Получены данные: basePrice={}, nights={}", basePrice, nights);
+        result.thenCompose(r -> publishBookingProcessedEvent(event, r))
+                .whenComplete((ignored, error) -> {
+                    concurrency.release();
+                    if (error == null) {
+                        idempotencyService.complete(event.bookingId());
+                        ack(channel, deliveryTag, event.bookingId());
+                        return;
+                    }
+                    Throwable cause = unwrap(error);
+                    log.error("❌ Неожиданная ошибка: {}", cause.getMessage(), cause);
+                    try {
+                        idempotencyService.release(event.bookingId());
+                    } finally {
+                        retry(channel, deliveryTag, message, event.bookingId(), cause);
+                    }
+                });
+    }
 
-            DiscountRequest discountRequest = DiscountRequest.newBuilder()
-                    .setBookingId(event.bookingId())
-                    .setHotelId(event.hotelId())
-                    .setNights(nights)
-                    .setBasePrice(basePrice)
-                    .setIsLoyalCustomer(false)
-                    .build();
+    private CompletableFuture<BookingResult> process(BookingCreatedEvent event, long remainingMs) {
+        long validationStart = System.nanoTime();
+        boolean valid = validateBookingEvent(event);
+        metrics.record(Stage.VALIDATION, validationStart, valid);
+        if (!valid) {
+            log.warn(" Событие не прошло валидацию: {}", event.bookingId());
+            return CompletableFuture.completedFuture(BookingResult.rejected(
+                    event.bookingId(),
+                    0.0,
+                    "Невалидные данные события"
+            ));
+        }
 
-            log.info(" Запрос скидки для booking_id: {}", event.bookingId());
+        double basePrice = event.basePrice();
+        int nights = event.nights();
+
+        // за оставшееся время ответ не успеет дойти до клиента — не нагружаем discount-service
+        if (remainingMs <= minBudgetMs) {
+            metrics.shed();
+            log.warn(" Бюджет саги исчерпан ({} мс), бронирование отклонено без запроса скидки: bookingId={}",
+                    remainingMs, event.bookingId());
+            return CompletableFuture.completedFuture(BookingResult.rejected(
+                    event.bookingId(),
+                    basePrice,
+                    "Истёк срок ожидания бронирования"
+            ));
+        }
+        Deadline deadline = remainingMs == Deadlines.NONE ? null : Deadline.after(remainingMs, TimeUnit.MILLISECONDS);
+
+        log.info(" Получены данные: basePrice={}, nights={}", basePrice, nights);
+
+        DiscountRequest discountRequest = DiscountRequest.newBuilder()
+                .setBookingId(event.bookingId())
+                .setHotelId(event.hotelId())
+                .setNights(nights)
+                .setBasePrice(basePrice)
+                .setIsLoyalCustomer(false)
+                .build();
+
+        RecommendationRequest recRequest = RecommendationRequest.newBuilder()
+                .setUserId(event.userId())
+                .setHotelId(event.hotelId())
+                .build();
+
+        log.info(" Запрос скидки и рекомендаций для booking_id: {}", event.bookingId());
+
+        CompletableFuture<DiscountResponse> discount = metrics.time(Stage.DISCOUNT,
+                        discountClient.calculateDiscount(discountRequest, deadline))
+                .exceptionally(e -> {
+                    log.warn(" Discount Service недоступен ({}), используем basePrice без скидки", describe(e));
+
+                    return DiscountResponse.newBuilder()
+                            .setBookingId(event.bookingId())
+                            .setDiscountPercentage(0.0)
+                            .setFinalPrice(basePrice)
+                            .setDiscountReason("Discount service temporarily unavailable")
+                            .setApplied(false)
+                            .build();
+                });
+
+        CompletableFuture<RecommendationResponse> recommendations = metrics.time(Stage.RECOMMENDATIONS,
+                        discountClient.getRecommendations(recRequest, deadline))
+                .exceptionally(e -> {
+                    log.warn(" Recommendation Service недоступен ({}), возвращаем пустой список", describe(e));
+
+                    return RecommendationResponse.newBuilder()
+                            .setMessage("Recommendations temporarily unavailable")
+                            .build();
+                });
+
+        return discount.thenCombine(recommendations, (d, r) -> decide(event, d, r));
+    }
 
-            DiscountResponse discountResponse;
+    private BookingResult decide(BookingCreatedEvent event, DiscountResponse discountResponse,
+                                 RecommendationResponse recommendations) {
+        double basePrice = event.basePrice();
+
+        if (!validateDiscountResponse(discountResponse)) {
+            log.error(" Невалидный DiscountResponse для booking_id: {}", event.bookingId());
+            return BookingResult.rejected(
+                    event.bookingId(),
+                    basePrice,
+                    "Невалидный ответ о скидке"
+            );
+        }
 
-            try {
-                discountResponse = discountClient.calculateDiscount(discountRequest);
+        log.info(" Получена скидка: {}% ({}), финальная цена: {}",
+                discountResponse.getDiscountPercentage(),
+                discountResponse.getDiscountReason(),
+                discountResponse.getFinalPrice());
 
-            } catch (StatusRuntimeException e) {
-                log.warn(" Discount Service недоступен ({}), используем basePrice без скидки",
-                        e.getStatus().getCode());
+        log.info("💡 Получены рекомендации: {} отелей",
+                recommendations.getRecommendedHotelIdsList().size());
 
-                discountResponse = DiscountResponse.newBuilder()
-                        .setBookingId(event.bookingId())
-                        .setDiscountPercentage(0.0)
-                        .setFinalPrice(basePrice)
-                        .setDiscountReason("Discount service temporarily unavailable")
-                        .setApplied(false)
-                        .build();
-            }
+        boolean confirmed = discountResponse.getFinalPrice() > 0
+                && discountResponse.getFinalPrice() <= basePrice * 1.5;
 
-            if (!validateDiscountResponse(discountResponse)) {
-                log.error(" Невалидный DiscountResponse для booking_id: {}", event.bookingId());
-                BookingResult result = BookingResult.rejected(
-                        event.bookingId(),
-                        basePrice,
-                        "Невалидный ответ о скидке"
-                );
-                publishBookingProcessedEvent(event, result);
-                return;
-            }
+        if (confirmed) {
+            log.info(" Бронирование ПОДТВЕРЖДЕНО: bookingId={}, finalPrice={}, discount={}%",
+                    event.bookingId(),
+                    discountResponse.getFinalPrice(),
+                    discountResponse.getDiscountPercentage());
 
-            log.info(" Получена скидка: {}% ({}), финальная цена: {}",
+            return BookingResult.confirmed(
+                    event.bookingId(),
+                    basePrice,
+                    discountResponse.getFinalPrice(),
                     discountResponse.getDiscountPercentage(),
                     discountResponse.getDiscountReason(),
-                    discountResponse.getFinalPrice());
-
-            RecommendationResponse recommendations;
-
-            try {
-                RecommendationRequest recRequest = RecommendationRequest.newBuilder()
-                        .setUserId(event.userId())
-                        .setHotelId(event.hotelId())
-                        .build();
-
-                recommendations = discountClient.getRecommendations(recRequest);
+                    recommendations.getRecommendedHotelIdsList()
+            );
+        }
 
-            } catch (StatusRuntimeException e) {
-                log.warn(" Recommendation Service недоступен, возвращаем пустой список");
+        log.warn(" Бронирование ОТКЛОНЕНО: bookingId={}, finalPrice={} недопустима",
+                event.bookingId(),
+                discountResponse.getFinalPrice());
 
-                recommendations = RecommendationResponse.newBuilder()
-                        .setMessage("Recommendations temporarily unavailable")
-                        .build();
-            }
+        return BookingResult.rejected(
+                event.bookingId(),
+                basePrice,
+                "Некорректная цена от сервиса скидок"
+        );
+    }
 
-            log.info("💡 Получены рекомендации: {} отелей",
-                    recommendations.getRecommendedHotelIdsList().size());
-
-            boolean confirmed = discountResponse.getFinalPrice() > 0
-                    && discountResponse.getFinalPrice() <= basePrice * 1.5;
-
-            BookingResult result;
-            if (confirmed) {
-                log.info(" Бронирование ПОДТВЕРЖДЕНО: bookingId={}, finalPrice={}, discount={}%",
-                        event.bookingId(),
-                        discountResponse.getFinalPrice(),
-                        discountResponse.getDiscountPercentage());
-
-                result = BookingResult.confirmed(
-                        event.bookingId(),
-                        basePrice,
-                        discountResponse.getFinalPrice(),
-                        discountResponse.getDiscountPercentage(),
-                        discountResponse.getDiscountReason(),
-                        recommendations.getRecommendedHotelIdsList()
-                );
-            } else {
-                log.warn(" Бронирование ОТКЛОНЕНО: bookingId={}, finalPrice={} недопустима",
-                        event.bookingId(),
-                        discountResponse.getFinalPrice());
-
-                result = BookingResult.rejected(
-                        event.bookingId(),
-                        basePrice,
-                        "Некорректная цена от сервиса скидок"
-                );
-            }
+    private void ack(Channel channel, long deliveryTag, String bookingId) {
+        try {
+            channel.basicAck(deliveryTag, false);
+        } catch (Exception e) {
+            // канал закрыт — брокер сам вернёт сообщение в очередь
+            log.warn(" Не удалось подтвердить сообщение: bookingId={}: {}", bookingId, e.getMessage());
+        }
+    }
 
-            publishBookingProcessedEvent(event, result);
+    /**
+     * Вместо немедленного requeue — копия в очередь задержки (или parking lot после max-attempts);
+     * исходное сообщение подтверждается после confirm копии, при сбое публикации — обычный requeue.
+     */
+    private void retry(Channel channel, long deliveryTag, Message message, String bookingId, Throwable error) {
+        RetryPolicy.Route route = retryPolicy.next(message, error);
+        eventPublisher.publish("", route.queue(), route.message(), bookingId)
+                .whenComplete((ignored, publishError) -> {
+                    if (publishError != null) {
+                        log.error(" Не удалось отложить повтор: bookingId={}: {}", bookingId, unwrap(publishError).getMessage());
+                        nack(channel, deliveryTag, bookingId);
+                        return;
+                    }
+                    metrics.retried(route.parked());
+                    if (route.parked()) {
+                        log.error(" bookingId={} отправлен в {} после {} попыток", bookingId, route.queue(), route.attempt() - 1);
+                    } else {
+                        log.warn(" Повтор {} для bookingId={} через {}", route.attempt(), bookingId, route.queue());
+                    }
+                    ack(channel, deliveryTag, bookingId);
+                });
+    }
 
+    private void nack(Channel channel, long deliveryTag, String bookingId) {
+        try {
+            channel.basicNack(deliveryTag, false, true);
         } catch (Exception e) {
-            log.error("❌ Неожиданная ошибка: {}", e.getMessage(), e);
+            log.warn(" Не удалось вернуть сообщение в очередь: bookingId={}: {}", bookingId, e.getMessage());
+        }
+    }
 
-            idempotencyService.release(event.bookingId());
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
 
-            throw new RuntimeException("Unexpected error, retry needed", e);
+    private static String describe(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof StatusRuntimeException sre) {
+            return sre.getStatus().getCode().toString();
         }
+        return cause.getClass().getSimpleName();
     }
 
     private boolean validateBookingEvent(BookingCreatedEvent event) {
@@ -247,47 +377,50 @@ public class BookingOrchestratorService {
         return true;
     }
 
-    private void publishBookingProcessedEvent(BookingCreatedEvent event, BookingResult result) {
-        try {
-            BookingProcessedEvent processedEvent;
-
-            if (result.status() == BookingStatus.CONFIRMED) {
-                processedEvent = BookingProcessedEvent.confirmed(
-                        result.bookingId(),
-                        event.userId(),
-                        event.hotelId(),
-                        event.customerEmail(),
-                        result.originalPrice(),
-                        result.finalPrice(),
-                        result.discountPercentage(),
-                        result.discountReason(),
-                        result.recommendations()
-                );
-            } else {
-                processedEvent = BookingProcessedEvent.rejected(
-                        result.bookingId(),
-                        event.userId(),
-                        event.hotelId(),
-                        event.customerEmail(),
-                        result.originalPrice(),
-                        result.rejectionReason()
-                );
-            }
-
-            rabbitTemplate.convertAndSend(FANOUT_EXCHANGE, "", processedEvent);
-
-            log.info(" Опубликовано BookingProcessedEvent: bookingId={}, status={}, finalPrice={}, discount={}%",
-                    processedEvent.bookingId(),
-                    processedEvent.status(),
-                    processedEvent.finalPrice(),
-                    processedEvent.discountPercentage());
-
-        } catch (Exception e) {
-            log.error(" Критическая ошибка публикации BookingProcessedEvent для booking_id: {}",
-                    result.bookingId(), e);
-            // НЕ пробрасываем исключение - иначе idempotency не сработает
-            // Можно добавить retry логику или DLQ
+    private CompletableFuture<Void> publishBookingProcessedEvent(BookingCreatedEvent event, BookingResult result) {
+        BookingProcessedEvent processedEvent;
+
+        if (result.status() == BookingStatus.CONFIRMED) {
+            processedEvent = BookingProcessedEvent.confirmed(
+                    result.bookingId(),
+                    event.userId(),
+                    event.hotelId(),
+                    event.customerEmail(),
+                    result.originalPrice(),
+                    result.finalPrice(),
+                    result.discountPercentage(),
+                    result.discountReason(),
+                    result.recommendations(),
+                    event.createdAt()
+            );
+        } else {
+            processedEvent = BookingProcessedEvent.rejected(
+                    result.bookingId(),
+                    event.userId(),
+                    event.hotelId(),
+                    event.customerEmail(),
+                    result.originalPrice(),
+                    result.rejectionReason(),
+                    event.createdAt()
+            );
         }
+
+        // входящее событие подтверждается только после confirm брокера; при ошибке оно вернётся в очередь
+        return metrics.time(Stage.PUBLISH,
+                        eventPublisher.publish(FANOUT_EXCHANGE, "", processedEvent, processedEvent.bookingId()))
+                .whenComplete((ignored, error) -> {
+                    if (error == null) {
+                        metrics.processed(event.createdAt());
+                        log.info(" Опубликовано BookingProcessedEvent: bookingId={}, status={}, finalPrice={}, discount={}%",
+                                processedEvent.bookingId(),
+                                processedEvent.status(),
+                                processedEvent.finalPrice(),
+                                processedEvent.discountPercentage());
+                    } else {
+                        log.error(" Критическая ошибка публикации BookingProcessedEvent для booking_id: {}",
+                                result.bookingId(), error);
+                    }
+                });
     }
 
 }
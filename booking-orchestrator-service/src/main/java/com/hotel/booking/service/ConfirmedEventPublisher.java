@@ -0,0 +1,249 @@
+package com.hotel.booking.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Асинхронная публикация с publisher confirms: сообщения копятся в пачки и отправляются
+ * одним обращением к каналу, future завершается только по ack брокера. Возврат (unroutable),
+ * nack и отсутствие подтверждения за confirmTimeoutMs — ошибка, входящее событие не подтверждается.
+ * Число неподтверждённых публикаций ограничено maxInFlight; сверх лимита публикация ждёт слот
+ * в очереди из не более maxWaiting элементов и не дольше confirmTimeoutMs. publish() никогда не
+ * блокирует вызывающий поток: его вызывают из gRPC-callback'ов и из потока проверки идемпотентности.
+ */
+@Service
+public class ConfirmedEventPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(ConfirmedEventPublisher.class);
+
+    private final RabbitTemplate rabbitTemplate;
+    private final int maxBatchSize;
+    private final long lingerMs;
+    private final long confirmTimeoutMs;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final int maxWaiting;
+    private final ConcurrentLinkedQueue<Waiter> waiting = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waitingCount = new AtomicInteger();
+
+    private final ConcurrentLinkedQueue<PendingPublish> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "event-publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final MeterRegistry meterRegistry;
+    private final Counter confirmed;
+    private final DistributionSummary batchSizes;
+
+    public ConfirmedEventPublisher(RabbitTemplate rabbitTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${orchestrator.publisher.max-in-flight:1000}") int maxInFlight,
+                                   @Value("${orchestrator.publisher.max-waiting:1000}") int maxWaiting,
+                                   @Value("${orchestrator.publisher.max-batch-size:100}") int maxBatchSize,
+                                   @Value("${orchestrator.publisher.linger-ms:2}") long lingerMs,
+                                   @Value("${orchestrator.publisher.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.meterRegistry = meterRegistry;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.maxWaiting = maxWaiting;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerMs = lingerMs;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+
+        Gauge.builder("orchestrator.publisher.in-flight", this, p -> p.maxInFlight - p.inFlight.availablePermits())
+                .description("Публикации, ожидающие подтверждения брокера")
+                .register(meterRegistry);
+        Gauge.builder("orchestrator.publisher.waiting", waitingCount, AtomicInteger::get)
+                .description("Публикации, ожидающие слота сверх max-in-flight")
+                .register(meterRegistry);
+        this.confirmed = Counter.builder("orchestrator.publisher.confirmed")
+                .description("Публикации, подтверждённые брокером")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("orchestrator.publisher.batch-size")
+                .description("Размер пачки публикаций")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<Void> publish(String exchange, String routingKey, Object event, String id) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        PendingPublish pending = new PendingPublish(exchange, routingKey, event, id, result);
+        if (inFlight.tryAcquire()) {
+            enqueue(pending);
+            return result;
+        }
+
+        // слота нет — ждём его без блокировки: освободивший слот поток отправит публикацию сам
+        if (waitingCount.incrementAndGet() > maxWaiting) {
+            waitingCount.decrementAndGet();
+            rejectBackpressure(pending);
+            return result;
+        }
+        Waiter waiter = new Waiter(pending);
+        waiting.add(waiter);
+        waiter.timeout = flusher.schedule(() -> {
+            if (waiting.remove(waiter)) {
+                waitingCount.decrementAndGet();
+                rejectBackpressure(pending);
+            }
+        }, confirmTimeoutMs, TimeUnit.MILLISECONDS);
+        // слот мог освободиться, пока публикация вставала в очередь ожидания
+        admitWaiting();
+        return result;
+    }
+
+    private void enqueue(PendingPublish pending) {
+        pending.result().whenComplete((r, e) -> {
+            inFlight.release();
+            admitWaiting();
+        });
+
+        queue.add(pending);
+        if (queued.incrementAndGet() >= maxBatchSize) {
+            flusher.execute(this::flush);
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            flusher.schedule(this::flush, lingerMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void admitWaiting() {
+        while (!waiting.isEmpty() && inFlight.tryAcquire()) {
+            Waiter waiter = waiting.poll();
+            if (waiter == null) {
+                inFlight.release();
+                return;
+            }
+            waitingCount.decrementAndGet();
+            if (waiter.timeout != null) {
+                waiter.timeout.cancel(false);
+            }
+            enqueue(waiter.pending);
+        }
+    }
+
+    private void rejectBackpressure(PendingPublish pending) {
+        failed("backpressure");
+        pending.result().completeExceptionally(new AmqpException(
+                "Превышен лимит неподтверждённых публикаций: " + maxInFlight));
+    }
+
+    @PreDestroy
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        while (true) {
+            List<PendingPublish> batch = new ArrayList<>();
+            PendingPublish pending;
+            while (batch.size() < maxBatchSize && (pending = queue.poll()) != null) {
+                queued.decrementAndGet();
+                batch.add(pending);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            send(batch);
+        }
+    }
+
+    private void send(List<PendingPublish> batch) {
+        batchSizes.record(batch.size());
+        List<CorrelationData> correlations = new ArrayList<>(batch.size());
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (PendingPublish pending : batch) {
+                    CorrelationData correlation = new CorrelationData(pending.id());
+                    correlations.add(correlation);
+                    operations.convertAndSend(pending.exchange(), pending.routingKey(), pending.event(), correlation);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("Ошибка отправки пачки из {} событий: {}", batch.size(), e.getMessage());
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            PendingPublish pending = batch.get(i);
+            if (i >= correlations.size()) {
+                failed("error");
+                pending.result().completeExceptionally(new AmqpException("Событие не отправлено: " + pending.id()));
+                continue;
+            }
+            CorrelationData correlation = correlations.get(i);
+            correlation.getFuture()
+                    .orTimeout(confirmTimeoutMs, TimeUnit.MILLISECONDS)
+                    .whenComplete((confirm, error) -> complete(pending, correlation, confirm, error));
+        }
+    }
+
+    private void complete(PendingPublish pending, CorrelationData correlation,
+                          CorrelationData.Confirm confirm, Throwable error) {
+        if (error != null) {
+            failed(error instanceof TimeoutException ? "timeout" : "error");
+            log.warn("Нет подтверждения публикации {} за {}мс", pending.id(), confirmTimeoutMs);
+            pending.result().completeExceptionally(new AmqpException("Нет подтверждения публикации " + pending.id(), error));
+        } else if (!confirm.isAck()) {
+            failed("nack");
+            log.warn("Брокер отклонил публикацию {}: {}", pending.id(), confirm.getReason());
+            pending.result().completeExceptionally(new AmqpException("nack публикации " + pending.id() + ": " + confirm.getReason()));
+        } else if (correlation.getReturned() != null) {
+            failed("returned");
+            log.warn("Публикация {} не смаршрутизирована: {}", pending.id(), correlation.getReturned().getReplyText());
+            pending.result().completeExceptionally(new AmqpException("Публикация " + pending.id() + " возвращена брокером"));
+        } else {
+            confirmed.increment();
+            pending.result().complete(null);
+        }
+    }
+
+    private void failed(String reason) {
+        meterRegistry.counter("orchestrator.publisher.failed", "reason", reason).increment();
+    }
+
+    private static final class Waiter {
+        final PendingPublish pending;
+        volatile ScheduledFuture<?> timeout;
+
+        Waiter(PendingPublish pending) {
+            this.pending = pending;
+        }
+    }
+
+    private record PendingPublish(String exchange, String routingKey, Object event, String id,
+                                  CompletableFuture<Void> result) {
+    }
+}
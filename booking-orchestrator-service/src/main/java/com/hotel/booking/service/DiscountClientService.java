@@ -1,15 +1,40 @@
 package com.hotel.booking.service;
 
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.hotel.booking.concurrency.DownstreamLatencyTracker;
 import com.hotel.grpc.discount.*;
-import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.grpc.Deadline;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
+/**
+ * Неблокирующий клиент discount-service: вызовы идут через future-стаб и возвращают
+ * CompletableFuture, circuit breaker применяется к результату вызова, а не к потоку.
+ * calculateDiscount по умолчанию идёт пачками через DiscountStreamClient, унарный RPC — запасной путь.
+ * Дедлайн вызова — меньшее из оставшегося бюджета саги и GRPC_DEADLINE_SECONDS.
+ */
 @Service
 public class DiscountClientService {
 
@@ -17,24 +42,165 @@ public class DiscountClientService {
     private static final long GRPC_DEADLINE_SECONDS = 5;
 
     @GrpcClient("discount-service")
-    private DiscountServiceGrpc.DiscountServiceBlockingStub discountServiceStub;
+    private DiscountServiceGrpc.DiscountServiceFutureStub discountServiceStub;
 
-    @CircuitBreaker(name = "discount-service", fallbackMethod = "calculateDiscountFallback")
-    public DiscountResponse calculateDiscount(DiscountRequest request) {
+    private final CircuitBreaker circuitBreaker;
+    private final DiscountStreamClient streamClient;
+    private final DownstreamLatencyTracker latencyTracker;
+    private final DiscountHedging hedging;
+
+    private final AsyncLoadingCache<RecommendationRequest, RecommendationResponse> recommendations;
+
+    public DiscountClientService(CircuitBreakerRegistry circuitBreakerRegistry, DiscountStreamClient streamClient,
+                                 DownstreamLatencyTracker latencyTracker, DiscountHedging hedging,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${orchestrator.recommendations.cache.max-size:50000}") long cacheMaxSize,
+                                 @Value("${orchestrator.recommendations.cache.refresh-after:5m}") Duration refreshAfter,
+                                 @Value("${orchestrator.recommendations.cache.ttl:1h}") Duration ttl) {
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("discount-service");
+        this.streamClient = streamClient;
+        this.latencyTracker = latencyTracker;
+        this.hedging = hedging;
+        // ключ — сам RecommendationRequest (userId, hotelId): protobuf-сообщения сравниваются по значению
+        this.recommendations = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .refreshAfterWrite(refreshAfter)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync((RecommendationRequest key, Executor executor) -> loadRecommendations(key)),
+                "orchestrator.recommendations");
+    }
+
+    /**
+     * Скидка с хеджированием: основная попытка — стрим (или унарный вызов, если стрим выключен),
+     * хедж — всегда отдельный унарный вызов, который балансировщик может отправить на другой бэкенд.
+     * Breaker видит хеджированный вызов как один.
+     */
+    public CompletableFuture<DiscountResponse> calculateDiscount(DiscountRequest request, @Nullable Deadline deadline) {
+        // хедж наследует дедлайн основной попытки, а не получает свои GRPC_DEADLINE_SECONDS
+        Deadline effective = effective(deadline);
+        return call(DiscountHedging.OPERATION, () -> hedging.execute(
+                () -> calculateDiscountPrimary(request, effective),
+                () -> calculateDiscountUnary(request, effective)));
+    }
+
+    private CompletableFuture<DiscountResponse> calculateDiscountPrimary(DiscountRequest request, Deadline deadline) {
+        if (!streamClient.isEnabled()) {
+            return calculateDiscountUnary(request, deadline);
+        }
+
+        log.debug(" gRPC stream calculateDiscount для booking: {}", request.getBookingId());
+
+        CompletableFuture<DiscountResponse> streamed =
+                streamClient.submit(request, deadline.timeRemaining(TimeUnit.MILLISECONDS));
+        AtomicReference<CompletableFuture<DiscountResponse>> fallback = new AtomicReference<>();
+        // хедж отменяет проигравшую попытку: отмена должна дойти и до места в стриме, и до унарного фолбэка
+        CompletableFuture<DiscountResponse> result = new CompletableFuture<>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                streamed.cancel(mayInterruptIfRunning);
+                CompletableFuture<DiscountResponse> unary = fallback.get();
+                if (unary != null) {
+                    unary.cancel(mayInterruptIfRunning);
+                }
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        streamed.whenComplete((response, e) -> {
+            if (e == null) {
+                result.complete(response);
+                return;
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (!(cause instanceof DiscountStreamClient.StreamUnavailableException) || result.isDone()) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            log.debug(" Стрим скидок недоступен ({}), унарный вызов для booking: {}",
+                    cause.getMessage(), request.getBookingId());
+            CompletableFuture<DiscountResponse> unary = calculateDiscountUnary(request, deadline);
+            fallback.set(unary);
+            if (result.isCancelled()) {
+                unary.cancel(true);
+                return;
+            }
+            unary.whenComplete((r, error) -> {
+                if (error == null) {
+                    result.complete(r);
+                } else {
+                    result.completeExceptionally(error);
+                }
+            });
+        });
+        return result;
+    }
+
+    private CompletableFuture<DiscountResponse> calculateDiscountUnary(DiscountRequest request, Deadline deadline) {
         log.debug(" gRPC вызов calculateDiscount для booking: {}", request.getBookingId());
 
-        return discountServiceStub
-                .withDeadlineAfter(GRPC_DEADLINE_SECONDS, TimeUnit.SECONDS)
-                .calculateDiscount(request);
+        return toCompletable(discountServiceStub
+                .withDeadline(deadline)
+                .calculateDiscount(request));
+    }
+
+    /**
+     * Рекомендации из кэша: свежая запись отдаётся без RPC, устаревшая (старше refresh-after)
+     * отдаётся сразу с одним фоновым обновлением на ключ. Неудачное обновление, в том числе при
+     * открытом breaker'е, оставляет прежнее значение до истечения ttl.
+     * Загрузка общая для всех ожидающих и идёт с GRPC_DEADLINE_SECONDS; дедлайн саги ограничивает
+     * только ожидание конкретного вызывающего.
+     */
+    public CompletableFuture<RecommendationResponse> getRecommendations(RecommendationRequest request,
+                                                                        @Nullable Deadline deadline) {
+        // copy(): вызывающий не должен иметь возможности завершить future, лежащий в кэше
+        CompletableFuture<RecommendationResponse> result = recommendations.get(request).copy();
+        return deadline == null ? result
+                : result.orTimeout(Math.max(0, deadline.timeRemaining(TimeUnit.MILLISECONDS)), TimeUnit.MILLISECONDS);
     }
 
-    @CircuitBreaker(name = "discount-service", fallbackMethod = "getRecommendationsFallback")
-    public RecommendationResponse getRecommendations(RecommendationRequest request) {
+    private CompletableFuture<RecommendationResponse> loadRecommendations(RecommendationRequest request) {
         log.debug(" gRPC вызов getRecommendations для user: {}", request.getUserId());
 
-        return discountServiceStub
+        return call("getRecommendations", () -> toCompletable(discountServiceStub
                 .withDeadlineAfter(GRPC_DEADLINE_SECONDS, TimeUnit.SECONDS)
-                .getRecommendations(request);
+                .getRecommendations(request)));
+    }
+
+    private static Deadline effective(@Nullable Deadline deadline) {
+        Deadline cap = Deadline.after(GRPC_DEADLINE_SECONDS, TimeUnit.SECONDS);
+        return deadline == null ? cap : deadline.minimum(cap);
+    }
+
+    private <T> CompletableFuture<T> call(String operation, Supplier<CompletionStage<T>> rpc) {
+        long start = System.nanoTime();
+        // при открытом breaker'е decorateCompletionStage сразу отдаёт future с CallNotPermittedException
+        CompletableFuture<T> result = circuitBreaker.decorateCompletionStage(rpc)
+                .get()
+                .toCompletableFuture();
+        result.whenComplete((r, e) -> latencyTracker.record(operation, System.nanoTime() - start, e));
+        return result;
+    }
+
+    private static <T> CompletableFuture<T> toCompletable(ListenableFuture<T> future) {
+        CompletableFuture<T> result = new CompletableFuture<>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                future.cancel(mayInterruptIfRunning);
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        Futures.addCallback(future, new FutureCallback<>() {
+            @Override
+            public void onSuccess(T value) {
+                result.complete(value);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
     }
 
 }
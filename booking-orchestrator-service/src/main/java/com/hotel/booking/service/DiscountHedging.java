@@ -0,0 +1,223 @@
+package com.hotel.booking.service;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Хеджирование calculateDiscount: если основная попытка не ответила за p95 латентности основных
+ * попыток, отправляется вторая, побеждает первый успешный ответ, проигравший отменяется.
+ * Задержка считается по основным попыткам, а не по итоговой латентности хеджированного вызова:
+ * иначе хеджи снижали бы измеряемый p95, тот — задержку, и хеджей становилось бы всё больше.
+ * Доля хеджей ограничена бюджетом: каждый вызов добавляет budgetPercent/100 токена, хедж тратит один.
+ * При не-CLOSED breaker'е хеджи не отправляются — под нагрузку они только добавят запросов.
+ */
+@Component
+public class DiscountHedging {
+
+    public static final String OPERATION = "calculateDiscount";
+
+    private static final Logger log = LoggerFactory.getLogger(DiscountHedging.class);
+    private static final long TOKEN = 1000;
+
+    private final Timer primaryLatency;
+    private final CircuitBreaker circuitBreaker;
+    private final boolean enabled;
+    private final long tokensPerCall;
+    private final long maxTokens;
+    private final long initialDelayMs;
+    private final long minDelayMs;
+    private final long maxDelayMs;
+    private final long minSamples;
+
+    private final AtomicLong tokens;
+    private volatile long delayMs;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "discount-hedging");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Counter hedgesSent;
+    private final Counter skippedBudget;
+    private final Counter skippedBreaker;
+    private final Counter primaryWins;
+    private final Counter hedgeWins;
+
+    public DiscountHedging(CircuitBreakerRegistry circuitBreakerRegistry,
+                           MeterRegistry meterRegistry,
+                           @Value("${orchestrator.hedging.enabled:true}") boolean enabled,
+                           @Value("${orchestrator.hedging.budget-percent:5}") double budgetPercent,
+                           @Value("${orchestrator.hedging.max-burst:10}") int maxBurst,
+                           @Value("${orchestrator.hedging.initial-delay-ms:1000}") long initialDelayMs,
+                           @Value("${orchestrator.hedging.min-delay-ms:20}") long minDelayMs,
+                           @Value("${orchestrator.hedging.max-delay-ms:4000}") long maxDelayMs,
+                           @Value("${orchestrator.hedging.min-samples:100}") long minSamples) {
+        this.primaryLatency = Timer.builder("orchestrator.hedging.primary.latency")
+                .description("Латентность основной попытки calculateDiscount; у проигравших хеджу — нижняя граница")
+                .publishPercentiles(0.95)
+                .register(meterRegistry);
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("discount-service");
+        this.enabled = enabled;
+        this.tokensPerCall = Math.round(budgetPercent / 100.0 * TOKEN);
+        this.maxTokens = (long) maxBurst * TOKEN;
+        this.tokens = new AtomicLong(maxTokens);
+        this.initialDelayMs = initialDelayMs;
+        this.minDelayMs = minDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.minSamples = minSamples;
+        this.delayMs = initialDelayMs;
+
+        Gauge.builder("orchestrator.hedging.delay", this, h -> h.delayMs)
+                .description("Текущая задержка перед хеджем calculateDiscount, мс")
+                .register(meterRegistry);
+        this.hedgesSent = hedgeCounter(meterRegistry, "sent");
+        this.skippedBudget = hedgeCounter(meterRegistry, "skipped-budget");
+        this.skippedBreaker = hedgeCounter(meterRegistry, "skipped-breaker");
+        this.primaryWins = winCounter(meterRegistry, "primary");
+        this.hedgeWins = winCounter(meterRegistry, "hedge");
+    }
+
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> primary,
+                                            Supplier<CompletableFuture<T>> hedge) {
+        if (!enabled) {
+            return primary.get();
+        }
+        tokens.accumulateAndGet(tokensPerCall, (current, add) -> Math.min(maxTokens, current + add));
+
+        HedgedCall<T> call = new HedgedCall<>(System.nanoTime());
+        call.primary = primary.get();
+        call.timer = scheduler.schedule(() -> call.launchHedge(hedge), delayMs, TimeUnit.MILLISECONDS);
+        call.primary.whenComplete((r, e) -> call.onAttempt(call.primary, r, e));
+        return call.result;
+    }
+
+    @Scheduled(fixedDelayString = "${orchestrator.hedging.delay-refresh-ms:1000}")
+    public void refreshDelay() {
+        if (primaryLatency.count() < minSamples) {
+            delayMs = initialDelayMs;
+            return;
+        }
+        double p95 = 0;
+        for (ValueAtPercentile value : primaryLatency.takeSnapshot().percentileValues()) {
+            p95 = value.value(TimeUnit.MILLISECONDS);
+        }
+        delayMs = p95 > 0 ? Math.max(minDelayMs, Math.min(maxDelayMs, Math.round(p95))) : initialDelayMs;
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private boolean tryTakeToken() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    private final class HedgedCall<T> {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final long startNanos;
+        CompletableFuture<T> primary;
+        volatile CompletableFuture<T> hedge;
+        volatile ScheduledFuture<?> timer;
+        private int failed;
+        private boolean primaryRecorded;
+
+        HedgedCall(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        synchronized void launchHedge(Supplier<CompletableFuture<T>> supplier) {
+            if (result.isDone()) {
+                return;
+            }
+            if (circuitBreaker.getState() != CircuitBreaker.State.CLOSED) {
+                skippedBreaker.increment();
+                return;
+            }
+            if (!tryTakeToken()) {
+                skippedBudget.increment();
+                return;
+            }
+            hedgesSent.increment();
+            log.debug("Хедж calculateDiscount после {}мс", delayMs);
+
+            CompletableFuture<T> attempt = supplier.get();
+            hedge = attempt;
+            attempt.whenComplete((r, e) -> onAttempt(attempt, r, e));
+        }
+
+        synchronized void onAttempt(CompletableFuture<T> attempt, T value, Throwable error) {
+            if (result.isDone()) {
+                return;
+            }
+            // основная попытка, проигравшая хеджу, отменяется — её латентность не меньше прошедшего времени
+            if (!primaryRecorded && (attempt == primary || error == null)) {
+                primaryRecorded = true;
+                primaryLatency.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            }
+            if (error == null) {
+                result.complete(value);
+                cancelTimer();
+                CompletableFuture<T> loser = attempt == primary ? hedge : primary;
+                if (loser != null) {
+                    (attempt == primary ? primaryWins : hedgeWins).increment();
+                    loser.cancel(true);
+                }
+                return;
+            }
+            failed++;
+            // ждём вторую попытку, только если она уже отправлена и ещё не упала
+            if (hedge == null || failed >= 2) {
+                cancelTimer();
+                result.completeExceptionally(error);
+            }
+        }
+
+        private void cancelTimer() {
+            // задача хеджа может стартовать раньше, чем schedule() вернёт ссылку
+            if (timer != null) {
+                timer.cancel(false);
+            }
+        }
+    }
+
+    private static Counter hedgeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("orchestrator.hedging.hedges")
+                .description("Решения о хедже calculateDiscount")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static Counter winCounter(MeterRegistry meterRegistry, String winner) {
+        return Counter.builder("orchestrator.hedging.wins")
+                .description("Чей ответ победил в хеджированных вызовах")
+                .tag("winner", winner)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,270 @@
+package com.hotel.booking.service;
+
+import com.hotel.grpc.discount.*;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PreDestroy;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Мультиплексирование calculateDiscount на несколько долгоживущих стримов CalculateDiscountStream.
+ * Запросы от параллельных консьюмеров копятся в микро-пачки (до maxBatchSize или lingerMs),
+ * ответы сопоставляются по booking_id. Если стрим оборвался, ожидающие запросы завершаются
+ * StreamUnavailableException — вызывающий повторяет их унарным RPC.
+ * <p>
+ * Стрим привязан к subchannel, который балансировщик выбрал при его открытии: запросы внутри стрима
+ * power_of_two_choices не распределяет и не исключает сбоящий эндпоинт, а новые реплики трафика
+ * стримов не получают. Поэтому по умолчанию клиент выключен, а calculateDiscount идёт унарными вызовами.
+ */
+@Component
+public class DiscountStreamClient {
+
+    private static final Logger log = LoggerFactory.getLogger(DiscountStreamClient.class);
+
+    @GrpcClient("discount-service")
+    private DiscountServiceGrpc.DiscountServiceStub discountServiceStub;
+
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long lingerMs;
+    private final long timeoutMs;
+    private final Lane[] lanes;
+    private final AtomicInteger nextLane = new AtomicInteger();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "discount-stream-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DiscountStreamClient(@Value("${orchestrator.discount-stream.enabled:false}") boolean enabled,
+                                @Value("${orchestrator.discount-stream.streams:2}") int streams,
+                                @Value("${orchestrator.discount-stream.max-batch-size:64}") int maxBatchSize,
+                                @Value("${orchestrator.discount-stream.linger-ms:2}") long lingerMs,
+                                @Value("${orchestrator.discount-stream.timeout-ms:5000}") long timeoutMs,
+                                @Value("${orchestrator.discount-lb.enabled:true}") boolean loadBalanced) {
+        if (enabled && loadBalanced) {
+            log.warn("Стримы скидок включены вместе с power_of_two_choices: calculateDiscount идёт в {} " +
+                    "стрим(а) на эндпоинтах, выбранных при открытии, и балансировку обходит", Math.max(1, streams));
+        }
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerMs = lingerMs;
+        this.timeoutMs = timeoutMs;
+        this.lanes = new Lane[Math.max(1, streams)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(i);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CompletableFuture<DiscountResponse> submit(DiscountRequest request) {
+        return submit(request, timeoutMs);
+    }
+
+    /**
+     * Ожидание ответа не дольше requestTimeoutMs и не дольше orchestrator.discount-stream.timeout-ms.
+     * Отмена результата освобождает место запроса в стриме: ещё не отправленный запрос в пачку не попадёт,
+     * ответ на отправленный будет проигнорирован.
+     */
+    public CompletableFuture<DiscountResponse> submit(DiscountRequest request, long requestTimeoutMs) {
+        long timeoutMs = Math.max(0, Math.min(requestTimeoutMs, this.timeoutMs));
+        Lane lane = lanes[Math.floorMod(nextLane.getAndIncrement(), lanes.length)];
+        CompletableFuture<DiscountResponse> future = new CompletableFuture<>();
+        lane.enqueue(new Pending(request, future));
+
+        CompletableFuture<DiscountResponse> result = new CompletableFuture<>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                future.cancel(mayInterruptIfRunning);
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).whenComplete((response, e) -> {
+            if (e == null) {
+                result.complete(response);
+            } else {
+                result.completeExceptionally(e instanceof TimeoutException
+                        ? Status.DEADLINE_EXCEEDED
+                        .withDescription("Нет ответа из стрима скидок за " + timeoutMs + "мс")
+                        .asRuntimeException()
+                        : e);
+            }
+        });
+        return result;
+    }
+
+    @PreDestroy
+    public void close() {
+        flusher.shutdown();
+        for (Lane lane : lanes) {
+            lane.close();
+        }
+    }
+
+    /**
+     * Стрим недоступен или запрос не удалось в него отправить — имеет смысл повторить унарным вызовом.
+     */
+    static final class StreamUnavailableException extends RuntimeException {
+        StreamUnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private record Pending(DiscountRequest request, CompletableFuture<DiscountResponse> future) {
+    }
+
+    private final class Lane {
+        private final int index;
+        private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        private Session session;
+
+        Lane(int index) {
+            this.index = index;
+        }
+
+        void enqueue(Pending pending) {
+            queue.add(pending);
+            if (queued.incrementAndGet() >= maxBatchSize) {
+                flusher.execute(this::flush);
+            } else if (flushScheduled.compareAndSet(false, true)) {
+                flusher.schedule(this::flush, lingerMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        void flush() {
+            // флаг снимаем до вычитывания очереди: запрос, пришедший после, запланирует новый flush
+            flushScheduled.set(false);
+            while (true) {
+                List<Pending> batch = new ArrayList<>(Math.min(maxBatchSize, Math.max(queued.get(), 1)));
+                Pending pending;
+                while (batch.size() < maxBatchSize && (pending = queue.poll()) != null) {
+                    queued.decrementAndGet();
+                    if (!pending.future().isDone()) {
+                        batch.add(pending);
+                    }
+                }
+                if (batch.isEmpty()) {
+                    return;
+                }
+                send(batch);
+            }
+        }
+
+        private synchronized void send(List<Pending> batch) {
+            DiscountBatchRequest.Builder request = DiscountBatchRequest.newBuilder();
+            Session target = null;
+            try {
+                if (session == null) {
+                    Session opened = new Session(this);
+                    opened.requests = discountServiceStub.calculateDiscountStream(opened);
+                    session = opened;
+                    log.debug("Открыт стрим скидок #{}", index);
+                }
+                target = session;
+                for (Pending pending : batch) {
+                    String bookingId = pending.request().getBookingId();
+                    if (target.inFlight.putIfAbsent(bookingId, pending.future()) != null) {
+                        // два запроса с одним booking_id не различить по ответу — второй идёт унарным RPC
+                        pending.future().completeExceptionally(
+                                new StreamUnavailableException("Запрос уже в стриме: " + bookingId, null));
+                        continue;
+                    }
+                    Session owner = target;
+                    pending.future().whenComplete((r, e) -> owner.inFlight.remove(bookingId, pending.future()));
+                    request.addRequests(pending.request());
+                }
+                if (request.getRequestsCount() > 0) {
+                    target.requests.onNext(request.build());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Не удалось отправить пачку в стрим скидок #{}: {}", index, e.getMessage());
+                StreamUnavailableException failure = new StreamUnavailableException("Ошибка отправки в стрим", e);
+                batch.forEach(p -> p.future().completeExceptionally(failure));
+                if (target != null) {
+                    try {
+                        target.requests.onError(e);
+                    } catch (RuntimeException ignored) {
+                        // стрим уже отменён
+                    }
+                    detach(target, e);
+                }
+            }
+        }
+
+        synchronized void detach(Session closed, Throwable cause) {
+            if (session == closed) {
+                session = null;
+            }
+            StreamUnavailableException failure = new StreamUnavailableException("Стрим скидок закрыт", cause);
+            closed.inFlight.values().forEach(f -> f.completeExceptionally(failure));
+        }
+
+        synchronized void close() {
+            if (session != null) {
+                session.requests.onCompleted();
+                detach(session, null);
+            }
+        }
+    }
+
+    private static final class Session implements StreamObserver<DiscountBatchResponse> {
+        private final Lane lane;
+        private final Map<String, CompletableFuture<DiscountResponse>> inFlight = new ConcurrentHashMap<>();
+        private StreamObserver<DiscountBatchRequest> requests;
+
+        Session(Lane lane) {
+            this.lane = lane;
+        }
+
+        @Override
+        public void onNext(DiscountBatchResponse batch) {
+            for (DiscountResult result : batch.getResultsList()) {
+                CompletableFuture<DiscountResponse> future = inFlight.remove(result.getBookingId());
+                if (future == null) {
+                    continue;
+                }
+                if (result.hasResponse()) {
+                    future.complete(result.getResponse());
+                } else {
+                    future.completeExceptionally(Status.fromCodeValue(result.getError().getCode())
+                            .withDescription(result.getError().getDescription())
+                            .asRuntimeException());
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            log.warn("Стрим скидок #{} оборвался: {}", lane.index, Status.fromThrowable(t));
+            lane.detach(this, t);
+        }
+
+        @Override
+        public void onCompleted() {
+            log.debug("Стрим скидок #{} закрыт сервером", lane.index);
+            lane.detach(this, null);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.hotel.booking.service;
+
+import com.hotel.booking.config.RabbitMQConfig;
+import com.hotel.events.amqp.retry.DlqReplayer;
+import com.hotel.events.amqp.retry.RetryPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * POST /actuator/dlqreplay/{queue}?limit=&ratePerSecond= — фоновая переотправка DLQ или parking lot
+ * в orchestrator-booking-created-queue с ограничением скорости, GET — её состояние.
+ * Actuator слушает отдельный management.server.port, не опубликованный наружу.
+ */
+@Component
+@Endpoint(id = "dlqreplay")
+public class DlqReplayEndpoint {
+
+    private static final Logger log = LoggerFactory.getLogger(DlqReplayEndpoint.class);
+
+    private final DlqReplayer replayer;
+    private final Map<String, String> sources;
+    private final int defaultLimit;
+    private final double defaultRate;
+    private final int maxLimit;
+
+    public DlqReplayEndpoint(DlqReplayer replayer,
+                             RetryPolicy bookingCreatedRetryPolicy,
+                             @Value("${orchestrator.dlq-replay.limit:1000}") int defaultLimit,
+                             @Value("${orchestrator.dlq-replay.rate-per-second:20}") double defaultRate,
+                             @Value("${orchestrator.dlq-replay.max-limit:10000}") int maxLimit) {
+        this.replayer = replayer;
+        this.sources = Map.of(
+                RabbitMQConfig.DLQ_QUEUE, RabbitMQConfig.QUEUE_BOOKING_CREATED,
+                bookingCreatedRetryPolicy.parkingLot(), RabbitMQConfig.QUEUE_BOOKING_CREATED);
+        this.defaultLimit = defaultLimit;
+        this.defaultRate = defaultRate;
+        this.maxLimit = maxLimit;
+    }
+
+    @WriteOperation
+    public DlqReplayer.Job replay(@Selector String queue, @Nullable Integer limit, @Nullable Double ratePerSecond) {
+        String target = sources.get(queue);
+        if (target == null) {
+            throw new InvalidEndpointRequestException("Переотправка разрешена только из " + sources.keySet(),
+                    "Unsupported queue");
+        }
+        if (limit != null && limit > maxLimit) {
+            throw new InvalidEndpointRequestException("limit не может превышать " + maxLimit, "Limit too large");
+        }
+        int max = limit != null && limit > 0 ? limit : defaultLimit;
+        double rate = ratePerSecond != null && ratePerSecond > 0 ? ratePerSecond : defaultRate;
+
+        log.info("Переотправка из {}: до {} сообщений, {}/с", queue, max, rate);
+        try {
+            return replayer.start(queue, target, max, rate);
+        } catch (IllegalStateException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), "Replay already running");
+        }
+    }
+
+    @ReadOperation
+    public DlqReplayer.Job status(@Selector String queue) {
+        return replayer.status(queue);
+    }
+}
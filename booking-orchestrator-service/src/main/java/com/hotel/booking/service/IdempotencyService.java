@@ -1,40 +1,178 @@
 package com.hotel.booking.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Двухуровневая проверка идемпотентности. Redis (SET NX EX) остаётся источником истины между
+ * инстансами, локальный кэш хранит только события, обработку которых завершил этот инстанс:
+ * их ключ уже не будет снят release(), поэтому локальное попадание всегда означает дубликат.
+ * Дубликаты, увиденные в Redis, не кэшируются — владелец ключа на другом инстансе может упасть
+ * и снять его, и повтор должен снова дойти до Redis. Промахи параллельных событий собираются
+ * в пачку и уходят одним pipelined-вызовом.
+ */
 @Service
 public class IdempotencyService {
 
     private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
     private static final String PREFIX = "idempotency:booking:";
     private static final Duration TTL = Duration.ofMinutes(10);
+    private static final byte[] VALUE = "1".getBytes(StandardCharsets.UTF_8);
 
     private final StringRedisTemplate redisTemplate;
+    private final Cache<String, Boolean> recentKeys;
+    private final int maxBatchSize;
+    private final long lingerMs;
+
+    private final ConcurrentLinkedQueue<PendingAcquire> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "idempotency-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Counter localHits;
+    private final Counter localMisses;
+    private final Counter redisRoundTrips;
+    private final Counter roundTripsSaved;
 
-    public IdempotencyService(StringRedisTemplate redisTemplate) {
+    public IdempotencyService(StringRedisTemplate redisTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${orchestrator.idempotency.local-max-size:100000}") long localMaxSize,
+                              @Value("${orchestrator.idempotency.max-batch-size:100}") int maxBatchSize,
+                              @Value("${orchestrator.idempotency.linger-ms:1}") long lingerMs) {
         this.redisTemplate = redisTemplate;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerMs = lingerMs;
+        // локальная запись не должна пережить ключ в Redis
+        this.recentKeys = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(TTL)
+                .build();
+
+        this.localHits = Counter.builder("orchestrator.idempotency.local")
+                .description("Проверки идемпотентности по локальному кэшу")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.localMisses = Counter.builder("orchestrator.idempotency.local")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.redisRoundTrips = Counter.builder("orchestrator.idempotency.redis.round-trips")
+                .description("Обращения к Redis за проверкой идемпотентности")
+                .register(meterRegistry);
+        this.roundTripsSaved = Counter.builder("orchestrator.idempotency.redis.round-trips-saved")
+                .description("Сэкономленные обращения к Redis: локальные попадания и пачки")
+                .register(meterRegistry);
     }
 
-    public boolean tryAcquire(String bookingId) {
-        String key = PREFIX + bookingId;
-        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(key, "1", TTL);
-
-        if (Boolean.TRUE.equals(acquired)) {
-            log.debug("Idempotency acquired: {}", bookingId);
-            return true;
-        } else {
-            log.warn("Duplicate detected: {}", bookingId);
-            return false;
+    public CompletableFuture<Boolean> tryAcquire(String bookingId) {
+        if (recentKeys.getIfPresent(bookingId) != null) {
+            localHits.increment();
+            roundTripsSaved.increment();
+            log.warn("Duplicate detected (local): {}", bookingId);
+            return CompletableFuture.completedFuture(false);
         }
+        localMisses.increment();
+
+        PendingAcquire pending = new PendingAcquire(bookingId, new CompletableFuture<>());
+        queue.add(pending);
+        if (queued.incrementAndGet() >= maxBatchSize) {
+            flusher.execute(this::flush);
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            flusher.schedule(this::flush, lingerMs, TimeUnit.MILLISECONDS);
+        }
+        return pending.result();
+    }
+
+    /** Событие обработано и подтверждено: ключ в Redis остаётся до TTL. */
+    public void complete(String bookingId) {
+        recentKeys.put(bookingId, Boolean.TRUE);
     }
 
     public void release(String bookingId) {
+        recentKeys.invalidate(bookingId);
         String key = PREFIX + bookingId;
         redisTemplate.delete(key);
         log.debug("Idempotency released: {}", bookingId);
     }
+
+    @PreDestroy
+    public void close() {
+        flusher.shutdown();
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        while (true) {
+            List<PendingAcquire> batch = new ArrayList<>();
+            PendingAcquire pending;
+            while (batch.size() < maxBatchSize && (pending = queue.poll()) != null) {
+                queued.decrementAndGet();
+                batch.add(pending);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            acquire(batch);
+        }
+    }
+
+    private void acquire(List<PendingAcquire> batch) {
+        List<Object> results;
+        try {
+            results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (PendingAcquire pending : batch) {
+                    connection.stringCommands().set((PREFIX + pending.bookingId()).getBytes(StandardCharsets.UTF_8),
+                            VALUE, Expiration.from(TTL), RedisStringCommands.SetOption.ifAbsent());
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("Ошибка pipelined-проверки идемпотентности для {} событий", batch.size(), e);
+            batch.forEach(p -> p.result().completeExceptionally(e));
+            return;
+        }
+
+        redisRoundTrips.increment();
+        roundTripsSaved.increment(batch.size() - 1);
+
+        for (int i = 0; i < batch.size(); i++) {
+            PendingAcquire pending = batch.get(i);
+            boolean acquired = Boolean.TRUE.equals(results.get(i));
+            if (acquired) {
+                log.debug("Idempotency acquired: {}", pending.bookingId());
+            } else {
+                log.warn("Duplicate detected: {}", pending.bookingId());
+            }
+            pending.result().complete(acquired);
+        }
+    }
+
+    private record PendingAcquire(String bookingId, CompletableFuture<Boolean> result) {
+    }
 }
@@ -0,0 +1,85 @@
+package com.hotel.booking.service;
+
+import com.hotel.events.metrics.PipelineLag;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время этапов саги orchestrator.saga.stage{stage, outcome}, задержка created → processed
+ * отложенные повторы orchestrator.retry{outcome} и отклонённые по дедлайну orchestrator.deadline.shed.
+ * Набор этапов и исходов фиксирован, теги не зависят от данных бронирования.
+ */
+@Component
+public class SagaMetrics {
+
+    public enum Stage { VALIDATION, IDEMPOTENCY, DISCOUNT, RECOMMENDATIONS, PUBLISH }
+
+    private final Map<Stage, Timer> succeeded = new EnumMap<>(Stage.class);
+    private final Map<Stage, Timer> failed = new EnumMap<>(Stage.class);
+    private final PipelineLag processedLag;
+    private final Counter retryScheduled;
+    private final Counter retryParked;
+    private final Counter shed;
+
+    public SagaMetrics(MeterRegistry meterRegistry) {
+        for (Stage stage : Stage.values()) {
+            succeeded.put(stage, timer(meterRegistry, stage, "success"));
+            failed.put(stage, timer(meterRegistry, stage, "failure"));
+        }
+        this.processedLag = PipelineLag.sinceCreated(meterRegistry, "processed");
+        this.retryScheduled = retryCounter(meterRegistry, "scheduled");
+        this.retryParked = retryCounter(meterRegistry, "parked");
+        this.shed = Counter.builder("orchestrator.deadline.shed")
+                .description("Бронирования, отклонённые без вызова discount-service из-за истёкшего бюджета")
+                .register(meterRegistry);
+    }
+
+    public void record(Stage stage, long startNanos, boolean success) {
+        (success ? succeeded : failed).get(stage).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Засекает этап от текущего момента до завершения future. */
+    public <T> CompletableFuture<T> time(Stage stage, CompletableFuture<T> future) {
+        long start = System.nanoTime();
+        return future.whenComplete((r, e) -> record(stage, start, e == null));
+    }
+
+    public void processed(long bookingCreatedAt) {
+        processedLag.record(bookingCreatedAt);
+    }
+
+    public void retried(boolean parked) {
+        (parked ? retryParked : retryScheduled).increment();
+    }
+
+    public void shed() {
+        shed.increment();
+    }
+
+    private static Counter retryCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("orchestrator.retry")
+                .description("Сбойные сообщения, отправленные в очередь задержки или parking lot")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, Stage stage, String outcome) {
+        return Timer.builder("orchestrator.saga.stage")
+                .description("Время этапа оркестрации бронирования")
+                .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry);
+    }
+}
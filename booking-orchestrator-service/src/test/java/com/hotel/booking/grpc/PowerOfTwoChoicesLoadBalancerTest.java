@@ -0,0 +1,260 @@
+package com.hotel.booking.grpc;
+
+import com.hotel.grpc.discount.DiscountRequest;
+import com.hotel.grpc.discount.DiscountResponse;
+import com.hotel.grpc.discount.DiscountServiceGrpc;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.ManagedChannel;
+import io.grpc.NameResolver;
+import io.grpc.NameResolverProvider;
+import io.grpc.NameResolverRegistry;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.inprocess.InProcessSocketAddress;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Политика power_of_two_choices на нескольких in-process discount-серверах за одним каналом:
+ * медленный сервер получает заметно меньше запросов, сбоящий исключается из выбора.
+ */
+class PowerOfTwoChoicesLoadBalancerTest {
+
+    private final String scheme = "p2c-test-" + UUID.randomUUID().toString().substring(0, 8);
+    private final List<Server> servers = new ArrayList<>();
+    private final List<DiscountServer> discountServers = new ArrayList<>();
+    private NameResolverProvider resolverProvider;
+    private ManagedChannel channel;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (channel != null) {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+        for (Server server : servers) {
+            server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+        if (resolverProvider != null) {
+            NameResolverRegistry.getDefaultRegistry().deregister(resolverProvider);
+        }
+    }
+
+    @Test
+    void slowServerReceivesLessLoad() throws Exception {
+        DiscountServer fast1 = server(0, null);
+        DiscountServer fast2 = server(0, null);
+        DiscountServer slow = server(30, null);
+        DiscountServiceGrpc.DiscountServiceBlockingStub stub = connect(5, 60_000);
+
+        int threads = 8;
+        int callsPerThread = 40;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < callsPerThread; i++) {
+                        stub.calculateDiscount(request());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int total = threads * callsPerThread;
+        assertThat(fast1.calls.get() + fast2.calls.get() + slow.calls.get()).isEqualTo(total);
+        // при равномерном распределении медленному досталась бы треть
+        assertThat(slow.calls.get()).isLessThan(total / 10);
+        assertThat(fast1.calls.get()).isGreaterThan(slow.calls.get());
+        assertThat(fast2.calls.get()).isGreaterThan(slow.calls.get());
+    }
+
+    @Test
+    void failingServerIsEjectedAfterThreshold() {
+        DiscountServer healthy1 = server(0, null);
+        DiscountServer healthy2 = server(0, null);
+        DiscountServer failing = server(0, Status.UNAVAILABLE);
+        DiscountServiceGrpc.DiscountServiceBlockingStub stub = connect(3, 60_000);
+
+        int failures = 0;
+        for (int i = 0; i < 200; i++) {
+            try {
+                stub.calculateDiscount(request());
+            } catch (StatusRuntimeException e) {
+                assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.UNAVAILABLE);
+                failures++;
+            }
+        }
+
+        // после трёх сбоев подряд эндпоинт исключён на минуту и больше не выбирается
+        assertThat(failing.calls.get()).isEqualTo(3);
+        assertThat(failures).isEqualTo(3);
+        assertThat(healthy1.calls.get() + healthy2.calls.get()).isEqualTo(197);
+    }
+
+    @Test
+    void lastEndpointIsNeverEjected() {
+        DiscountServer failing = server(0, Status.UNAVAILABLE);
+        DiscountServiceGrpc.DiscountServiceBlockingStub stub = connect(3, 60_000);
+
+        for (int i = 0; i < 20; i++) {
+            try {
+                stub.calculateDiscount(request());
+            } catch (StatusRuntimeException e) {
+                assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.UNAVAILABLE);
+            }
+        }
+
+        // лучше отдать ошибку бэкенда, чем отказать в выборе без единого кандидата
+        assertThat(failing.calls.get()).isEqualTo(20);
+    }
+
+    private DiscountServer server(long delayMs, Status failure) {
+        String name = scheme + "-" + servers.size();
+        DiscountServer service = new DiscountServer(name, delayMs, failure);
+        try {
+            servers.add(InProcessServerBuilder.forName(name)
+                    .addService(service)
+                    .build()
+                    .start());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        discountServers.add(service);
+        return service;
+    }
+
+    private DiscountServiceGrpc.DiscountServiceBlockingStub connect(int ejectionThreshold, long ejectionTimeMs) {
+        List<EquivalentAddressGroup> addresses = discountServers.stream()
+                .map(server -> new EquivalentAddressGroup(new InProcessSocketAddress(server.name)))
+                .toList();
+        resolverProvider = new StaticResolverProvider(scheme, addresses);
+        NameResolverRegistry.getDefaultRegistry().register(resolverProvider);
+        channel = InProcessChannelBuilder.forTarget(scheme + ":///discount-service")
+                .defaultServiceConfig(PowerOfTwoChoicesLoadBalancerProvider.serviceConfig(
+                        ejectionThreshold, ejectionTimeMs, 10_000))
+                .build();
+        return DiscountServiceGrpc.newBlockingStub(channel).withDeadlineAfter(30, TimeUnit.SECONDS);
+    }
+
+    private static DiscountRequest request() {
+        return DiscountRequest.newBuilder()
+                .setBookingId(UUID.randomUUID().toString())
+                .setUserId("user-1")
+                .setHotelId("hotel-1")
+                .setNights(2)
+                .setBasePrice(200)
+                .build();
+    }
+
+    private static final class DiscountServer extends DiscountServiceGrpc.DiscountServiceImplBase {
+        final String name;
+        final long delayMs;
+        final Status failure;
+        final AtomicInteger calls = new AtomicInteger();
+
+        DiscountServer(String name, long delayMs, Status failure) {
+            this.name = name;
+            this.delayMs = delayMs;
+            this.failure = failure;
+        }
+
+        @Override
+        public void calculateDiscount(DiscountRequest request, StreamObserver<DiscountResponse> responseObserver) {
+            calls.incrementAndGet();
+            if (failure != null) {
+                responseObserver.onError(failure.asRuntimeException());
+                return;
+            }
+            if (delayMs > 0) {
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            responseObserver.onNext(DiscountResponse.newBuilder()
+                    .setBookingId(request.getBookingId())
+                    .setFinalPrice(request.getBasePrice())
+                    .build());
+            responseObserver.onCompleted();
+        }
+    }
+
+    /** Резолвер, отдающий фиксированный список in-process адресов, — как static:// в боевом канале. */
+    private static final class StaticResolverProvider extends NameResolverProvider {
+        private final String scheme;
+        private final List<EquivalentAddressGroup> addresses;
+
+        StaticResolverProvider(String scheme, List<EquivalentAddressGroup> addresses) {
+            this.scheme = scheme;
+            this.addresses = addresses;
+        }
+
+        @Override
+        protected boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        protected int priority() {
+            return 5;
+        }
+
+        @Override
+        public String getDefaultScheme() {
+            return scheme;
+        }
+
+        @Override
+        public Collection<Class<? extends SocketAddress>> getProducedSocketAddressTypes() {
+            return Set.of(InProcessSocketAddress.class);
+        }
+
+        @Override
+        public NameResolver newNameResolver(URI targetUri, NameResolver.Args args) {
+            if (!scheme.equals(targetUri.getScheme())) {
+                return null;
+            }
+            return new NameResolver() {
+                @Override
+                public String getServiceAuthority() {
+                    return "discount-service";
+                }
+
+                @Override
+                public void start(Listener2 listener) {
+                    listener.onResult(ResolutionResult.newBuilder().setAddresses(addresses).build());
+                }
+
+                @Override
+                public void shutdown() {
+                }
+            };
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.hotel.discount.service;
 
 import com.hotel.grpc.discount.*;
+import io.grpc.StatusException;
 import io.grpc.stub.StreamObserver;
 import net.devh.boot.grpc.server.service.GrpcService;
 import org.slf4j.Logger;
@@ -21,58 +22,11 @@ public class DiscountServiceImpl extends DiscountServiceGrpc.DiscountServiceImpl
         log.info("Получен запрос на расчет скидки для booking_id: {}", request.getBookingId());
 
         try {
-            if (request.getBasePrice() <= 0 || request.getNights() <= 0) {
-                log.error(" Невалидные входные данные: basePrice={}, nights={}",
-                        request.getBasePrice(), request.getNights());
-                responseObserver.onError(
-                        io.grpc.Status.INVALID_ARGUMENT
-                                .withDescription("basePrice и nights должны быть > 0")
-                                .asException()
-                );
-                return;
-            }
-
-            double discountPercentage = 0.0;
-            String discountReason = "Скидка не применена";
-            boolean applied = false;
-
-            if (request.getIsLoyalCustomer()) {
-                discountPercentage = 10.0 + random.nextDouble() * 5.0;
-                discountReason = "Скидка для лояльного клиента";
-                applied = true;
-            } else if (request.getNights() >= 7) {
-                discountPercentage = 5.0;
-                discountReason = "Скидка за длительное проживание";
-                applied = true;
-            } else if (random.nextDouble() < 0.1) {
-                discountPercentage = 7.0;
-                discountReason = "Специальное промо-предложение";
-                applied = true;
-            }
-
-            discountPercentage = Math.min(discountPercentage, 100.0);
-
-            double finalPrice = request.getBasePrice();
-            if (applied) {
-                finalPrice = request.getBasePrice() * (1 - discountPercentage / 100.0);
-            }
-
-            finalPrice = Math.max(finalPrice, 0.0);
-
-            DiscountResponse response = DiscountResponse.newBuilder()
-                    .setBookingId(request.getBookingId())
-                    .setDiscountPercentage(discountPercentage)
-                    .setFinalPrice(finalPrice)
-                    .setDiscountReason(discountReason)
-                    .setApplied(applied)
-                    .build();
-
-            log.info(" Скидка рассчитана: {}% ({}), финальная цена: {}",
-                    discountPercentage, discountReason, finalPrice);
-
-            responseObserver.onNext(response);
+            responseObserver.onNext(computeDiscount(request));
             responseObserver.onCompleted();
 
+        } catch (StatusException e) {
+            responseObserver.onError(e);
         } catch (Exception e) {
             log.error(" Ошибка при расчёте скидки", e);
             responseObserver.onError(
@@ -83,6 +37,106 @@ public class DiscountServiceImpl extends DiscountServiceGrpc.DiscountServiceImpl
         }
     }
 
+    /**
+     * Потоковый вариант calculateDiscount: клиент присылает пачки запросов по долгоживущему стриму,
+     * на каждую пачку уходит одна пачка ответов. Ошибка отдельного запроса не рвёт стрим,
+     * а возвращается в DiscountResult по его booking_id.
+     */
+    @Override
+    public StreamObserver<DiscountBatchRequest> calculateDiscountStream(
+            StreamObserver<DiscountBatchResponse> responseObserver) {
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(DiscountBatchRequest batch) {
+                log.debug("Получена пачка из {} запросов скидки", batch.getRequestsCount());
+
+                DiscountBatchResponse.Builder response = DiscountBatchResponse.newBuilder();
+                for (DiscountRequest request : batch.getRequestsList()) {
+                    DiscountResult.Builder result = DiscountResult.newBuilder()
+                            .setBookingId(request.getBookingId());
+                    try {
+                        result.setResponse(computeDiscount(request));
+                    } catch (StatusException e) {
+                        result.setError(toError(e.getStatus()));
+                    } catch (Exception e) {
+                        log.error(" Ошибка при расчёте скидки для booking_id: {}", request.getBookingId(), e);
+                        result.setError(toError(io.grpc.Status.INTERNAL
+                                .withDescription("Внутренняя ошибка при расчёте скидки")));
+                    }
+                    response.addResults(result);
+                }
+                responseObserver.onNext(response.build());
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                log.warn("Стрим скидок закрыт клиентом с ошибкой: {}", io.grpc.Status.fromThrowable(t));
+            }
+
+            @Override
+            public void onCompleted() {
+                responseObserver.onCompleted();
+            }
+        };
+    }
+
+    private DiscountResponse computeDiscount(DiscountRequest request) throws StatusException {
+        if (request.getBasePrice() <= 0 || request.getNights() <= 0) {
+            log.error(" Невалидные входные данные: basePrice={}, nights={}",
+                    request.getBasePrice(), request.getNights());
+            throw io.grpc.Status.INVALID_ARGUMENT
+                    .withDescription("basePrice и nights должны быть > 0")
+                    .asException();
+        }
+
+        double discountPercentage = 0.0;
+        String discountReason = "Скидка не применена";
+        boolean applied = false;
+
+        if (request.getIsLoyalCustomer()) {
+            discountPercentage = 10.0 + random.nextDouble() * 5.0;
+            discountReason = "Скидка для лояльного клиента";
+            applied = true;
+        } else if (request.getNights() >= 7) {
+            discountPercentage = 5.0;
+            discountReason = "Скидка за длительное проживание";
+            applied = true;
+        } else if (random.nextDouble() < 0.1) {
+            discountPercentage = 7.0;
+            discountReason = "Специальное промо-предложение";
+            applied = true;
+        }
+
+        discountPercentage = Math.min(discountPercentage, 100.0);
+
+        double finalPrice = request.getBasePrice();
+        if (applied) {
+            finalPrice = request.getBasePrice() * (1 - discountPercentage / 100.0);
+        }
+
+        finalPrice = Math.max(finalPrice, 0.0);
+
+        DiscountResponse response = DiscountResponse.newBuilder()
+                .setBookingId(request.getBookingId())
+                .setDiscountPercentage(discountPercentage)
+                .setFinalPrice(finalPrice)
+                .setDiscountReason(discountReason)
+                .setApplied(applied)
+                .build();
+
+        log.info(" Скидка рассчитана: {}% ({}), финальная цена: {}",
+                discountPercentage, discountReason, finalPrice);
+
+        return response;
+    }
+
+    private static DiscountError toError(io.grpc.Status status) {
+        return DiscountError.newBuilder()
+                .setCode(status.getCode().value())
+                .setDescription(status.getDescription() != null ? status.getDescription() : "")
+                .build();
+    }
+
     @Override
     public void getRecommendations(RecommendationRequest request,
                                    StreamObserver<RecommendationResponse> responseObserver) {
@@ -11,6 +11,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.util.List;
 
@@ -50,10 +51,25 @@ public interface HotelApi {
     @GetMapping("/api/bookings/{id}")
     EntityModel<com.hotel.api.dto.BookingResponse> getBooking(@PathVariable("id") String id);
 
-    @Operation(summary = "Список бронирований (пагинация)")
+    @Operation(summary = "Дождаться статуса бронирования (long-poll)",
+            description = "Отвечает, как только статус станет одним из waitFor, либо по истечении timeout " +
+                    "(например 20s) с текущим состоянием бронирования.")
+    @GetMapping(value = "/api/bookings/{id}", params = "waitFor")
+    DeferredResult<EntityModel<com.hotel.api.dto.BookingResponse>> awaitBooking(
+            @PathVariable("id") String id,
+            @RequestParam("waitFor") List<String> waitFor,
+            @RequestParam(defaultValue = "20s") String timeout
+    );
+
+    @Operation(summary = "Список бронирований (пагинация)",
+            description = "Keyset-пагинация: следующая страница запрашивается по cursor из ссылки next. " +
+                    "Параметр page оставлен для совместимости и работает через OFFSET. " +
+                    "На страницах по cursor page.number всегда 0 и смысла не несёт, " +
+                    "а totalElements и totalPages — оценка.")
     @GetMapping("/api/bookings")
     PagedModel<EntityModel<com.hotel.api.dto.BookingResponse>> listBookings(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor
     );
 }
@@ -19,6 +19,20 @@ public class GlobalExceptionHandler {
                 .body(new StatusResponse("error", ex.getMessage()));
     }
 
+    @ExceptionHandler(RoomsUnavailableException.class)
+    public ResponseEntity<StatusResponse> handleRoomsUnavailable(RoomsUnavailableException ex) {
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(new StatusResponse("error", ex.getMessage()));
+    }
+
+    @ExceptionHandler(ValidationException.class)
+    public ResponseEntity<StatusResponse> handleValidation(ValidationException ex) {
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(new StatusResponse("error", ex.getMessage()));
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<StatusResponse> handleValidation(MethodArgumentNotValidException ex) {
         String errors = ex.getBindingResult().getFieldErrors().stream()
@@ -0,0 +1,9 @@
+package com.hotel.api.exception;
+
+import java.time.LocalDate;
+
+public class RoomsUnavailableException extends RuntimeException {
+    public RoomsUnavailableException(String hotelId, LocalDate checkIn, LocalDate checkOut) {
+        super(String.format("В отеле %s нет свободных номеров с %s по %s", hotelId, checkIn, checkOut));
+    }
+}
@@ -1,5 +1,6 @@
 package com.hotel.audit.config;
 
+import com.hotel.events.amqp.EventMessageConverter;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
@@ -77,8 +78,9 @@ public class RabbitMQConfig {
                 .to(orchestrationExchange());
     }
 
+    /** Аудит только читает: события бронирования и результаты оркестрации в JSON или protobuf. */
     @Bean
-    public MessageConverter jsonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter eventMessageConverter() {
+        return new EventMessageConverter(new Jackson2JsonMessageConverter(), MessageProperties.CONTENT_TYPE_JSON);
     }
 }
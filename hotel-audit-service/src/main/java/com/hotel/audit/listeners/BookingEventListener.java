@@ -5,6 +5,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hotel.audit.config.RabbitMQConfig;
 import com.hotel.audit.entity.AuditLog;
 import com.hotel.audit.repo.AuditLogRepository;
+import com.hotel.events.metrics.PipelineLag;
+import io.micrometer.core.instrument.MeterRegistry;
 import com.hotel.events.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,10 +24,12 @@ public class BookingEventListener {
     private static final Logger log = LoggerFactory.getLogger(BookingEventListener.class);
     private final AuditLogRepository repo;
     private final ObjectMapper mapper;
+    private final PipelineLag auditedLag;
 
-    public BookingEventListener(AuditLogRepository repo, ObjectMapper mapper) {
+    public BookingEventListener(AuditLogRepository repo, ObjectMapper mapper, MeterRegistry meterRegistry) {
         this.repo = repo;
         this.mapper = mapper;
+        this.auditedLag = new PipelineLag(meterRegistry, "audited");
     }
 
     @RabbitListener(queues = RabbitMQConfig.QUEUE_BOOKING_CREATED)
@@ -55,6 +59,7 @@ public class BookingEventListener {
                 : "BOOKING_REJECTED";
 
         save(type, event, event.bookingId(), event.customerEmail());
+        auditedLag.record(event.bookingCreatedAt(), event.timestamp());
     }
 
     @RabbitListener(queues = RabbitMQConfig.QUEUE_BOOKING_PAID)
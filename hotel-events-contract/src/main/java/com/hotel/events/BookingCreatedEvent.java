@@ -12,5 +12,6 @@ public record BookingCreatedEvent(
         String checkOut,
         int nights,
         double pricePerNight,
-        double basePrice
+        double basePrice,
+        long createdAt  // epoch millis создания бронирования, 0 — от старых продюсеров
 ) {}
\ No newline at end of file
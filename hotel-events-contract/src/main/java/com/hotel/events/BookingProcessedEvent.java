@@ -18,7 +18,8 @@ public record BookingProcessedEvent(
         String discountReason,
         String rejectionReason,
         List<String> recommendations,
-        long timestamp
+        long timestamp,
+        long bookingCreatedAt  // BookingCreatedEvent.createdAt, для сквозной задержки конвейера
 ) implements Serializable {
 
     public static BookingProcessedEvent confirmed(
@@ -30,7 +31,8 @@ public record BookingProcessedEvent(
             double finalPrice,
             double discountPercentage,
             String discountReason,
-            List<String> recommendations) {
+            List<String> recommendations,
+            long bookingCreatedAt) {
         return new BookingProcessedEvent(
                 bookingId,
                 userId,
@@ -43,7 +45,8 @@ public record BookingProcessedEvent(
                 discountReason,
                 null,
                 recommendations,
-                System.currentTimeMillis()
+                System.currentTimeMillis(),
+                bookingCreatedAt
         );
     }
 
@@ -53,7 +56,8 @@ public record BookingProcessedEvent(
             String customerEmail,
             String hotelId,
             double originalPrice,
-            String rejectionReason) {
+            String rejectionReason,
+            long bookingCreatedAt) {
         return new BookingProcessedEvent(
                 bookingId,
                 userId,
@@ -66,7 +70,8 @@ public record BookingProcessedEvent(
                 null,
                 rejectionReason,
                 null,
-                System.currentTimeMillis()
+                System.currentTimeMillis(),
+                bookingCreatedAt
         );
     }
 }
\ No newline at end of file
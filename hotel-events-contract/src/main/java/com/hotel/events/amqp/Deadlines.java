@@ -0,0 +1,37 @@
+package com.hotel.events.amqp;
+
+import org.springframework.amqp.core.MessageProperties;
+
+/**
+ * Сквозной дедлайн саги: заголовок x-deadline с абсолютным временем (epoch millis), после которого
+ * клиент результат уже не ждёт. Абсолютное время не зависит от того, сколько сообщение пролежало
+ * в очередях, но требует синхронизированных часов сервисов.
+ * <p>
+ * Дедлайн действует только на первую доставку: отложенные повторы и переотправки из DLQ его
+ * не наследуют (RetryPolicy.copyProperties), поэтому сбрасывается лишь работа, простоявшая
+ * в очереди дольше бюджета, а не бронирования, попавшие под сбой инфраструктуры.
+ */
+public final class Deadlines {
+
+    public static final String HEADER = "x-deadline";
+    public static final long NONE = Long.MAX_VALUE;
+
+    private Deadlines() {
+    }
+
+    /** Оставшийся бюджет в мс (может быть отрицательным); NONE, если дедлайна нет. */
+    public static long remainingMillis(MessageProperties properties) {
+        Object value = properties.getHeader(HEADER);
+        if (value instanceof Number deadline) {
+            return deadline.longValue() - System.currentTimeMillis();
+        }
+        if (value != null) {
+            try {
+                return Long.parseLong(value.toString()) - System.currentTimeMillis();
+            } catch (NumberFormatException ignored) {
+                // некорректный заголовок не должен ронять обработку — считаем, что дедлайна нет
+            }
+        }
+        return NONE;
+    }
+}
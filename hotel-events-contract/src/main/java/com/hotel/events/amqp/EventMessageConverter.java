@@ -0,0 +1,93 @@
+package com.hotel.events.amqp;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.amqp.support.converter.SmartMessageConverter;
+import org.springframework.core.ParameterizedTypeReference;
+
+import java.lang.reflect.Type;
+
+/**
+ * MessageConverter событий с выбором формата по content-type.
+ * <p>
+ * Чтение: application/x-protobuf разбирается по заголовку x-event-type (или по типу параметра
+ * слушателя), всё остальное уходит в JSON-делегат. Запись: события из com.hotel.events кодируются
+ * в формате producerContentType, прочие объекты — всегда JSON. Так сервисы переходят на protobuf
+ * по одному: сначала потребители начинают понимать оба формата, затем производители переключаются.
+ */
+public class EventMessageConverter implements SmartMessageConverter {
+
+    public static final String CONTENT_TYPE_PROTOBUF = "application/x-protobuf";
+    public static final String EVENT_TYPE_HEADER = "x-event-type";
+
+    private final MessageConverter json;
+    private final boolean produceProtobuf;
+
+    public EventMessageConverter(MessageConverter json, String producerContentType) {
+        this.json = json;
+        this.produceProtobuf = isProtobuf(producerContentType);
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+        EventProtos.Codec<?> codec = produceProtobuf ? EventProtos.forType(object.getClass()) : null;
+        if (codec == null) {
+            return json.toMessage(object, messageProperties);
+        }
+        byte[] body = codec.encode(object);
+        messageProperties.setContentType(CONTENT_TYPE_PROTOBUF);
+        messageProperties.setContentLength(body.length);
+        messageProperties.setHeader(EVENT_TYPE_HEADER, codec.protoName());
+        return new Message(body, messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        return fromMessage(message, (Object) null);
+    }
+
+    @Override
+    public Object fromMessage(Message message, Object conversionHint) {
+        MessageProperties properties = message.getMessageProperties();
+        if (!isProtobuf(properties.getContentType())) {
+            if (conversionHint instanceof Class<?> type && json instanceof SmartMessageConverter smart) {
+                return smart.fromMessage(message, ParameterizedTypeReference.forType(type));
+            }
+            return json instanceof SmartMessageConverter smart
+                    ? smart.fromMessage(message, conversionHint)
+                    : json.fromMessage(message);
+        }
+
+        EventProtos.Codec<?> codec = resolve(properties, conversionHint);
+        try {
+            return codec.decode(message.getBody());
+        } catch (InvalidProtocolBufferException e) {
+            throw new MessageConversionException("Не удалось разобрать " + codec.protoName(), e);
+        }
+    }
+
+    /** Типизированное чтение для слушателей, которые получают сырые Message. */
+    public <T> T fromMessage(Message message, Class<T> type) {
+        return type.cast(fromMessage(message, (Object) type));
+    }
+
+    private static EventProtos.Codec<?> resolve(MessageProperties properties, Object conversionHint) {
+        Object name = properties.getHeader(EVENT_TYPE_HEADER);
+        EventProtos.Codec<?> codec = name != null ? EventProtos.forName(name.toString()) : null;
+        if (codec == null) {
+            Type inferred = conversionHint instanceof Class<?> type ? type : properties.getInferredArgumentType();
+            codec = inferred instanceof Class<?> type ? EventProtos.forType(type) : null;
+        }
+        if (codec == null) {
+            throw new MessageConversionException("Неизвестный тип protobuf-события: " + name);
+        }
+        return codec;
+    }
+
+    private static boolean isProtobuf(String contentType) {
+        return contentType != null && contentType.startsWith(CONTENT_TYPE_PROTOBUF);
+    }
+}
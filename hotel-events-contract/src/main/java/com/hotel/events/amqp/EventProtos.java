@@ -0,0 +1,207 @@
+package com.hotel.events.amqp;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+import com.hotel.events.BookingCancelledEvent;
+import com.hotel.events.BookingConfirmedEvent;
+import com.hotel.events.BookingCreatedEvent;
+import com.hotel.events.BookingPaidEvent;
+import com.hotel.events.BookingProcessedEvent;
+import com.hotel.events.proto.RecommendationList;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Отображение record-событий из com.hotel.events на protobuf-сообщения и обратно.
+ * Имя типа на проводе — полное имя protobuf-сообщения (hotel.events.BookingCreatedEvent).
+ */
+final class EventProtos {
+
+    private static final List<Codec<?>> CODECS = List.of(
+            new Codec<>(BookingCreatedEvent.class,
+                    com.hotel.events.proto.BookingCreatedEvent.getDescriptor().getFullName(),
+                    EventProtos::encodeCreated, EventProtos::decodeCreated),
+            new Codec<>(BookingProcessedEvent.class,
+                    com.hotel.events.proto.BookingProcessedEvent.getDescriptor().getFullName(),
+                    EventProtos::encodeProcessed, EventProtos::decodeProcessed),
+            new Codec<>(BookingPaidEvent.class,
+                    com.hotel.events.proto.BookingPaidEvent.getDescriptor().getFullName(),
+                    EventProtos::encodePaid, EventProtos::decodePaid),
+            new Codec<>(BookingCancelledEvent.class,
+                    com.hotel.events.proto.BookingCancelledEvent.getDescriptor().getFullName(),
+                    EventProtos::encodeCancelled, EventProtos::decodeCancelled),
+            new Codec<>(BookingConfirmedEvent.class,
+                    com.hotel.events.proto.BookingConfirmedEvent.getDescriptor().getFullName(),
+                    EventProtos::encodeConfirmed, EventProtos::decodeConfirmed)
+    );
+
+    private static final Map<Class<?>, Codec<?>> BY_TYPE = CODECS.stream()
+            .collect(Collectors.toUnmodifiableMap(Codec::type, Function.identity()));
+    private static final Map<String, Codec<?>> BY_NAME = CODECS.stream()
+            .collect(Collectors.toUnmodifiableMap(Codec::protoName, Function.identity()));
+
+    private EventProtos() {
+    }
+
+    static Codec<?> forType(Class<?> type) {
+        return BY_TYPE.get(type);
+    }
+
+    static Codec<?> forName(String protoName) {
+        return BY_NAME.get(protoName);
+    }
+
+    record Codec<T>(Class<T> type, String protoName,
+                    Function<T, MessageLite> encoder, Decoder<T> decoder) {
+
+        byte[] encode(Object event) {
+            return encoder.apply(type.cast(event)).toByteArray();
+        }
+
+        T decode(byte[] body) throws InvalidProtocolBufferException {
+            return decoder.decode(body);
+        }
+    }
+
+    @FunctionalInterface
+    interface Decoder<T> {
+        T decode(byte[] body) throws InvalidProtocolBufferException;
+    }
+
+    private static MessageLite encodeCreated(BookingCreatedEvent event) {
+        var builder = com.hotel.events.proto.BookingCreatedEvent.newBuilder()
+                .setNights(event.nights())
+                .setPricePerNight(event.pricePerNight())
+                .setBasePrice(event.basePrice())
+                .setCreatedAt(event.createdAt());
+        set(event.bookingId(), builder::setBookingId);
+        set(event.userId(), builder::setUserId);
+        set(event.hotelId(), builder::setHotelId);
+        set(event.customerName(), builder::setCustomerName);
+        set(event.customerEmail(), builder::setCustomerEmail);
+        set(event.checkIn(), builder::setCheckIn);
+        set(event.checkOut(), builder::setCheckOut);
+        return builder.build();
+    }
+
+    private static BookingCreatedEvent decodeCreated(byte[] body) throws InvalidProtocolBufferException {
+        var proto = com.hotel.events.proto.BookingCreatedEvent.parseFrom(body);
+        return new BookingCreatedEvent(
+                proto.hasBookingId() ? proto.getBookingId() : null,
+                proto.hasUserId() ? proto.getUserId() : null,
+                proto.hasHotelId() ? proto.getHotelId() : null,
+                proto.hasCustomerName() ? proto.getCustomerName() : null,
+                proto.hasCustomerEmail() ? proto.getCustomerEmail() : null,
+                proto.hasCheckIn() ? proto.getCheckIn() : null,
+                proto.hasCheckOut() ? proto.getCheckOut() : null,
+                proto.getNights(),
+                proto.getPricePerNight(),
+                proto.getBasePrice(),
+                proto.getCreatedAt());
+    }
+
+    private static MessageLite encodeProcessed(BookingProcessedEvent event) {
+        var builder = com.hotel.events.proto.BookingProcessedEvent.newBuilder()
+                .setOriginalPrice(event.originalPrice())
+                .setFinalPrice(event.finalPrice())
+                .setDiscountPercentage(event.discountPercentage())
+                .setTimestamp(event.timestamp())
+                .setBookingCreatedAt(event.bookingCreatedAt());
+        set(event.bookingId(), builder::setBookingId);
+        set(event.userId(), builder::setUserId);
+        set(event.hotelId(), builder::setHotelId);
+        set(event.customerEmail(), builder::setCustomerEmail);
+        set(event.status(), builder::setStatus);
+        set(event.discountReason(), builder::setDiscountReason);
+        set(event.rejectionReason(), builder::setRejectionReason);
+        if (event.recommendations() != null) {
+            builder.setRecommendations(RecommendationList.newBuilder().addAllItems(event.recommendations()));
+        }
+        return builder.build();
+    }
+
+    private static BookingProcessedEvent decodeProcessed(byte[] body) throws InvalidProtocolBufferException {
+        var proto = com.hotel.events.proto.BookingProcessedEvent.parseFrom(body);
+        return new BookingProcessedEvent(
+                proto.hasBookingId() ? proto.getBookingId() : null,
+                proto.hasUserId() ? proto.getUserId() : null,
+                proto.hasHotelId() ? proto.getHotelId() : null,
+                proto.hasCustomerEmail() ? proto.getCustomerEmail() : null,
+                proto.hasStatus() ? proto.getStatus() : null,
+                proto.getOriginalPrice(),
+                proto.getFinalPrice(),
+                proto.getDiscountPercentage(),
+                proto.hasDiscountReason() ? proto.getDiscountReason() : null,
+                proto.hasRejectionReason() ? proto.getRejectionReason() : null,
+                proto.hasRecommendations() ? List.copyOf(proto.getRecommendations().getItemsList()) : null,
+                proto.getTimestamp(),
+                proto.getBookingCreatedAt());
+    }
+
+    private static MessageLite encodePaid(BookingPaidEvent event) {
+        var builder = com.hotel.events.proto.BookingPaidEvent.newBuilder()
+                .setFinalPrice(event.finalPrice())
+                .setTimestamp(event.timestamp());
+        set(event.bookingId(), builder::setBookingId);
+        set(event.customerEmail(), builder::setCustomerEmail);
+        set(event.customerName(), builder::setCustomerName);
+        set(event.paymentMethod(), builder::setPaymentMethod);
+        return builder.build();
+    }
+
+    private static BookingPaidEvent decodePaid(byte[] body) throws InvalidProtocolBufferException {
+        var proto = com.hotel.events.proto.BookingPaidEvent.parseFrom(body);
+        return new BookingPaidEvent(
+                proto.hasBookingId() ? proto.getBookingId() : null,
+                proto.hasCustomerEmail() ? proto.getCustomerEmail() : null,
+                proto.hasCustomerName() ? proto.getCustomerName() : null,
+                proto.getFinalPrice(),
+                proto.hasPaymentMethod() ? proto.getPaymentMethod() : null,
+                proto.getTimestamp());
+    }
+
+    private static MessageLite encodeCancelled(BookingCancelledEvent event) {
+        var builder = com.hotel.events.proto.BookingCancelledEvent.newBuilder();
+        set(event.bookingId(), builder::setBookingId);
+        set(event.customerEmail(), builder::setCustomerEmail);
+        return builder.build();
+    }
+
+    private static BookingCancelledEvent decodeCancelled(byte[] body) throws InvalidProtocolBufferException {
+        var proto = com.hotel.events.proto.BookingCancelledEvent.parseFrom(body);
+        return new BookingCancelledEvent(
+                proto.hasBookingId() ? proto.getBookingId() : null,
+                proto.hasCustomerEmail() ? proto.getCustomerEmail() : null);
+    }
+
+    private static MessageLite encodeConfirmed(BookingConfirmedEvent event) {
+        var builder = com.hotel.events.proto.BookingConfirmedEvent.newBuilder();
+        set(event.bookingId(), builder::setBookingId);
+        set(event.hotelId(), builder::setHotelId);
+        set(event.customerEmail(), builder::setCustomerEmail);
+        set(event.finalPrice(), builder::setFinalPrice);
+        set(event.discount(), builder::setDiscount);
+        return builder.build();
+    }
+
+    private static BookingConfirmedEvent decodeConfirmed(byte[] body) throws InvalidProtocolBufferException {
+        var proto = com.hotel.events.proto.BookingConfirmedEvent.parseFrom(body);
+        return new BookingConfirmedEvent(
+                proto.hasBookingId() ? proto.getBookingId() : null,
+                proto.hasHotelId() ? proto.getHotelId() : null,
+                proto.hasCustomerEmail() ? proto.getCustomerEmail() : null,
+                proto.hasFinalPrice() ? proto.getFinalPrice() : null,
+                proto.hasDiscount() ? proto.getDiscount() : null);
+    }
+
+    // null в record = отсутствующее optional-поле
+    private static <V> void set(V value, Consumer<V> setter) {
+        if (value != null) {
+            setter.accept(value);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.hotel.events.amqp.retry;
+
+import com.rabbitmq.client.GetResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Переотправка сообщений из DLQ или parking lot обратно в рабочую очередь с ограничением скорости,
+ * чтобы накопленный за время сбоя хвост не обрушился на сервис разом.
+ * <p>
+ * Сообщения забираются по одному через basic.get без автоподтверждения; из источника сообщение
+ * удаляется только после publisher confirm копии. Очередь назначения: x-retry-queue (parking lot),
+ * затем x-first-death-queue (DLQ), иначе defaultTarget. Счётчик повторов и дедлайн саги сбрасываются:
+ * ручная переотправка — решение обработать сообщение, даже если клиент его уже не ждёт
+ * (см. RetryPolicy.copyProperties).
+ * Требует spring.rabbitmq.publisher-confirm-type=correlated и mandatory-шаблон с publisher returns:
+ * иначе копия, отправленная в удалённую очередь, подтверждается брокером и теряется.
+ * <p>
+ * start() запускает переотправку в фоне (не больше одной на источник), status() отдаёт её состояние.
+ */
+public class DlqReplayer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DlqReplayer.class);
+    private static final String FIRST_DEATH_QUEUE_HEADER = "x-first-death-queue";
+
+    private final RabbitTemplate rabbitTemplate;
+    private final long confirmTimeoutMs;
+    private final MessagePropertiesConverter propertiesConverter = new DefaultMessagePropertiesConverter();
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "dlq-replay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DlqReplayer(RabbitTemplate rabbitTemplate, long confirmTimeoutMs) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
+
+    /** Запускает переотправку в фоне; IllegalStateException, если из source уже идёт переотправка. */
+    public Job start(String source, String defaultTarget, int limit, double permitsPerSecond) {
+        Job job = jobs.compute(source, (key, current) -> {
+            if (current != null && current.result() == null) {
+                throw new IllegalStateException("Переотправка из " + source + " уже идёт с " + current.startedAt());
+            }
+            return new Job(source, limit, permitsPerSecond, Instant.now(), null);
+        });
+        executor.execute(() -> {
+            Result result;
+            try {
+                result = replay(source, defaultTarget, limit, permitsPerSecond);
+            } catch (RuntimeException e) {
+                result = new Result(0, false, e.getMessage());
+            }
+            Result finished = result;
+            jobs.computeIfPresent(source, (key, current) -> current.finish(finished));
+            log.info("Переотправка из {} завершена: {}", source, finished);
+        });
+        return job;
+    }
+
+    /** Последняя переотправка из source (выполняющаяся или завершённая) или null. */
+    public Job status(String source) {
+        return jobs.get(source);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    public Result replay(String source, String defaultTarget, int limit, double permitsPerSecond) {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        long next = System.nanoTime();
+        int replayed = 0;
+        while (replayed < limit) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            next = Math.max(next, System.nanoTime()) + intervalNanos;
+
+            Outcome outcome;
+            try {
+                outcome = replayOne(source, defaultTarget);
+            } catch (RuntimeException e) {
+                log.warn("Переотправка из {} остановлена: {}", source, e.getMessage());
+                return new Result(replayed, false, e.getMessage());
+            }
+            if (outcome == Outcome.EMPTY) {
+                return new Result(replayed, true, null);
+            }
+            replayed++;
+        }
+        return new Result(replayed, false, null);
+    }
+
+    private Outcome replayOne(String source, String defaultTarget) {
+        // get, publish и ack на одном канале: delivery tag действителен только в нём
+        return rabbitTemplate.invoke(operations -> operations.execute(channel -> {
+            GetResponse response = channel.basicGet(source, false);
+            if (response == null) {
+                return Outcome.EMPTY;
+            }
+            long tag = response.getEnvelope().getDeliveryTag();
+            try {
+                MessageProperties received = propertiesConverter.toMessageProperties(
+                        response.getProps(), response.getEnvelope(), StandardCharsets.UTF_8.name());
+                String target = target(received, defaultTarget);
+                if (target == null) {
+                    throw new IllegalStateException("Не удалось определить очередь назначения для сообщения "
+                            + received.getMessageId());
+                }
+                MessageProperties properties = RetryPolicy.copyProperties(received);
+                properties.getHeaders().remove(RetryPolicy.RETRY_COUNT_HEADER);
+
+                CorrelationData correlation = new CorrelationData();
+                operations.send("", target, new Message(response.getBody(), properties), correlation);
+                CorrelationData.Confirm confirm = correlation.getFuture().get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+                if (!confirm.isAck() || correlation.getReturned() != null) {
+                    throw new IllegalStateException("Брокер не принял сообщение для " + target);
+                }
+                channel.basicAck(tag, false);
+                return Outcome.REPLAYED;
+            } catch (Exception e) {
+                channel.basicNack(tag, false, true);
+                throw e instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getMessage(), e);
+            }
+        }));
+    }
+
+    private static String target(MessageProperties properties, String defaultTarget) {
+        Object retryQueue = properties.getHeader(RetryPolicy.RETRY_QUEUE_HEADER);
+        if (retryQueue != null) {
+            return retryQueue.toString();
+        }
+        Object firstDeath = properties.getHeader(FIRST_DEATH_QUEUE_HEADER);
+        return firstDeath != null ? firstDeath.toString() : defaultTarget;
+    }
+
+    private enum Outcome { REPLAYED, EMPTY }
+
+    /** drained — источник опустел до достижения лимита; error — причина остановки. */
+    public record Result(int replayed, boolean drained, String error) {
+    }
+
+    /** result == null — переотправка ещё выполняется. */
+    public record Job(String source, int limit, double ratePerSecond, Instant startedAt, Result result) {
+
+        public boolean running() {
+            return result == null;
+        }
+
+        Job finish(Result result) {
+            return new Job(source, limit, ratePerSecond, startedAt, result);
+        }
+    }
+}
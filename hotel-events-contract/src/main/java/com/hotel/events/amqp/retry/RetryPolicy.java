@@ -0,0 +1,142 @@
+package com.hotel.events.amqp.retry;
+
+import com.hotel.events.amqp.Deadlines;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.QueueBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Отложенные повторы для очереди через TTL-очереди задержки вместо немедленного requeue.
+ * <p>
+ * Попытка n уходит в очередь задержки {queue}.retry.{delayMs} с TTL = initialDelay × multiplier^(n-1);
+ * по истечении TTL брокер dead-letter'ом возвращает сообщение в исходную очередь. Джиттер задаётся
+ * per-message expiration в пределах [TTL × (1 - jitter), TTL]: сообщения из одного сбоя не приходят
+ * обратно одной пачкой, а head-of-line блокировка внутри уровня не превышает jitter × TTL.
+ * После maxAttempts повторов сообщение уходит в {queue}.parking-lot до ручного разбора.
+ */
+public final class RetryPolicy {
+
+    public static final String RETRY_COUNT_HEADER = "x-retry-count";
+    public static final String RETRY_QUEUE_HEADER = "x-retry-queue";
+    public static final String LAST_ERROR_HEADER = "x-last-error";
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final String queue;
+    private final long[] delaysMs;
+    private final double jitter;
+
+    public RetryPolicy(String queue, long initialDelayMs, double multiplier, int maxAttempts, double jitter) {
+        if (maxAttempts < 1 || initialDelayMs < 1 || multiplier < 1 || jitter < 0 || jitter >= 1) {
+            throw new IllegalArgumentException("Некорректные параметры повторов для " + queue);
+        }
+        this.queue = queue;
+        this.jitter = jitter;
+        this.delaysMs = new long[maxAttempts];
+        double delay = initialDelayMs;
+        for (int i = 0; i < maxAttempts; i++) {
+            delaysMs[i] = Math.round(delay);
+            delay *= multiplier;
+        }
+    }
+
+    public String queue() {
+        return queue;
+    }
+
+    public String parkingLot() {
+        return queue + ".parking-lot";
+    }
+
+    public int maxAttempts() {
+        return delaysMs.length;
+    }
+
+    /** Очереди задержки и parking lot; имя очереди задержки включает TTL, чтобы смена настроек не конфликтовала с уже объявленной. */
+    public Declarables declarables() {
+        List<Declarable> declarables = new ArrayList<>();
+        for (long delayMs : delaysMs) {
+            declarables.add(QueueBuilder.durable(delayQueue(delayMs))
+                    .ttl((int) delayMs)
+                    .deadLetterExchange("")
+                    .deadLetterRoutingKey(queue)
+                    .build());
+        }
+        declarables.add(QueueBuilder.durable(parkingLot()).build());
+        return new Declarables(declarables);
+    }
+
+    public static int retryCount(Message message) {
+        Object value = message.getMessageProperties().getHeader(RETRY_COUNT_HEADER);
+        return value instanceof Number number ? number.intValue() : 0;
+    }
+
+    /**
+     * Куда отправить сообщение после сбоя обработки: следующая очередь задержки или parking lot.
+     * Возвращается копия с увеличенным x-retry-count; исходное сообщение подтверждается
+     * только после подтверждения публикации копии.
+     */
+    public Route next(Message failed, Throwable error) {
+        int attempt = retryCount(failed) + 1;
+        MessageProperties properties = copyProperties(failed.getMessageProperties());
+        properties.setHeader(RETRY_COUNT_HEADER, attempt);
+        properties.setHeader(RETRY_QUEUE_HEADER, queue);
+        properties.setHeader(LAST_ERROR_HEADER, describe(error));
+
+        if (attempt > delaysMs.length) {
+            return new Route(parkingLot(), new Message(failed.getBody(), properties), attempt, true);
+        }
+        long delayMs = delaysMs[attempt - 1];
+        long jittered = delayMs - (long) (delayMs * jitter * ThreadLocalRandom.current().nextDouble());
+        properties.setExpiration(String.valueOf(Math.max(1, jittered)));
+        return new Route(delayQueue(delayMs), new Message(failed.getBody(), properties), attempt, false);
+    }
+
+    private String delayQueue(long delayMs) {
+        return queue + ".retry." + delayMs;
+    }
+
+    /**
+     * Полученные свойства содержат служебные поля доставки; переносим только то, что относится к сообщению.
+     * Дедлайн саги (x-deadline) тоже не переносится: расписание повторов заведомо длиннее бюджета,
+     * и копия, унаследовавшая его, была бы отклонена без обработки. Повтор после сбоя
+     * обрабатывается полностью, а не превращается в REJECTED.
+     */
+    static MessageProperties copyProperties(MessageProperties source) {
+        MessageProperties target = new MessageProperties();
+        target.setContentType(source.getContentType());
+        target.setContentEncoding(source.getContentEncoding());
+        target.setMessageId(source.getMessageId());
+        target.setCorrelationId(source.getCorrelationId());
+        target.setTimestamp(source.getTimestamp());
+        target.setType(source.getType());
+        target.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        source.getHeaders().forEach((name, value) -> {
+            // x-death и производные ведёт брокер при dead-lettering
+            if (!name.startsWith("x-death") && !name.startsWith("x-first-death") && !name.startsWith("x-last-death")
+                    && !name.equals(Deadlines.HEADER)) {
+                target.setHeader(name, value);
+            }
+        });
+        return target;
+    }
+
+    private static String describe(Throwable error) {
+        if (error == null) {
+            return "unknown";
+        }
+        String text = error.getClass().getSimpleName() + (error.getMessage() != null ? ": " + error.getMessage() : "");
+        return text.length() > MAX_ERROR_LENGTH ? text.substring(0, MAX_ERROR_LENGTH) : text;
+    }
+
+    /** queue — очередь назначения через default exchange; parked — повторы исчерпаны. */
+    public record Route(String queue, Message message, int attempt, boolean parked) {
+    }
+}
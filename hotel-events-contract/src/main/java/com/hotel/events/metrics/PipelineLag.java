@@ -0,0 +1,69 @@
+package com.hotel.events.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержка конвейера бронирования по меткам времени событий: booking.pipeline.lag{stage, since}.
+ * stage — где событие наблюдается (processed, persisted, audited, notified),
+ * since — от какой метки считаем (created — сквозная задержка, processed — от решения оркестратора).
+ * Ряд since=processed регистрируется только для этапов после оркестратора: сам оркестратор
+ * момент решения знает лишь как «сейчас», и этот ряд у него всегда был бы пустым.
+ * Теги фиксированы, поэтому число временных рядов ограничено.
+ */
+public final class PipelineLag {
+
+    public static final String METRIC = "booking.pipeline.lag";
+
+    private final Timer sinceCreated;
+    private final Timer sinceProcessed;
+
+    /** Этап после оркестратора: ряды since=created и since=processed. */
+    public PipelineLag(MeterRegistry meterRegistry, String stage) {
+        this(timer(meterRegistry, stage, "created"), timer(meterRegistry, stage, "processed"));
+    }
+
+    private PipelineLag(Timer sinceCreated, Timer sinceProcessed) {
+        this.sinceCreated = sinceCreated;
+        this.sinceProcessed = sinceProcessed;
+    }
+
+    /** Этап, на котором событие processed ещё не существует: только ряд since=created. */
+    public static PipelineLag sinceCreated(MeterRegistry meterRegistry, String stage) {
+        return new PipelineLag(timer(meterRegistry, stage, "created"), null);
+    }
+
+    /** Метки — epoch millis; 0 означает, что продюсер метку не передал. */
+    public void record(long createdAt, long processedAt) {
+        long now = System.currentTimeMillis();
+        record(sinceCreated, now, createdAt);
+        if (sinceProcessed != null) {
+            record(sinceProcessed, now, processedAt);
+        }
+    }
+
+    public void record(long createdAt) {
+        record(sinceCreated, System.currentTimeMillis(), createdAt);
+    }
+
+    private static void record(Timer timer, long now, long since) {
+        if (since > 0) {
+            // часы сервисов могут расходиться — отрицательную задержку считаем нулевой
+            timer.record(Math.max(0, now - since), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String stage, String since) {
+        return Timer.builder(METRIC)
+                .description("Задержка конвейера бронирования по меткам времени событий")
+                .tag("stage", stage)
+                .tag("since", since)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(5))
+                .maximumExpectedValue(Duration.ofMinutes(5))
+                .register(meterRegistry);
+    }
+}
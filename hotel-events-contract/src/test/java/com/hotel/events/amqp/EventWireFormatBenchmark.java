@@ -0,0 +1,106 @@
+package com.hotel.events.amqp;
+
+import com.hotel.events.BookingCancelledEvent;
+import com.hotel.events.BookingCreatedEvent;
+import com.hotel.events.BookingPaidEvent;
+import com.hotel.events.BookingProcessedEvent;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Размер payload и время encode/decode событий в JSON и protobuf через EventMessageConverter.
+ * Заодно проверяет, что событие переживает кодирование в обоих форматах без потерь.
+ * <p>
+ * Запуск (не тест, surefire его не подхватывает):
+ * <pre>
+ * mvn -pl hotel-events-contract test-compile dependency:build-classpath \
+ *     -Dmdep.includeScope=test -Dmdep.outputFile=target/cp.txt
+ * java -cp hotel-events-contract/target/classes:hotel-events-contract/target/test-classes:$(cat hotel-events-contract/target/cp.txt) \
+ *     com.hotel.events.amqp.EventWireFormatBenchmark [iterations] [rounds]
+ * </pre>
+ * Время — лучший из rounds прогонов по iterations операций, наносекунды на операцию.
+ */
+public class EventWireFormatBenchmark {
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        EventMessageConverter json = new EventMessageConverter(new Jackson2JsonMessageConverter(),
+                MessageProperties.CONTENT_TYPE_JSON);
+        EventMessageConverter protobuf = new EventMessageConverter(new Jackson2JsonMessageConverter(),
+                EventMessageConverter.CONTENT_TYPE_PROTOBUF);
+
+        long now = System.currentTimeMillis();
+        List<Object> events = List.of(
+                new BookingCreatedEvent(UUID.randomUUID().toString(), "user-42", "hotel-7", "Иван Петров",
+                        "ivan@example.com", "2026-11-01", "2026-11-05", 4, 120.5, 482.0, now),
+                BookingProcessedEvent.confirmed(UUID.randomUUID().toString(), "user-42", "hotel-7",
+                        "ivan@example.com", 482.0, 433.8, 10, "Постоянный клиент",
+                        List.of("hotel-3", "hotel-9", "hotel-11"), now),
+                BookingProcessedEvent.rejected(UUID.randomUUID().toString(), "user-42", "hotel-7",
+                        "ivan@example.com", 482.0, "Нет мест", now),
+                new BookingPaidEvent(UUID.randomUUID().toString(), "ivan@example.com", "Иван Петров",
+                        433.8, "card", now),
+                new BookingCancelledEvent(UUID.randomUUID().toString(), "ivan@example.com"));
+
+        System.out.println("Размер payload, байт:");
+        for (Object event : events) {
+            Message jsonMessage = json.toMessage(event, new MessageProperties());
+            Message protobufMessage = protobuf.toMessage(event, new MessageProperties());
+            // потребитель читает оба формата независимо от того, в каком публикует сам
+            check(event, json.fromMessage(protobufMessage, event.getClass()));
+            check(event, protobuf.fromMessage(jsonMessage, event.getClass()));
+            System.out.printf("  %-32s json=%5d protobuf=%5d%n", label(event),
+                    jsonMessage.getBody().length, protobufMessage.getBody().length);
+        }
+
+        System.out.printf("Время на событие, нс (лучший из %d прогонов по %d):%n", rounds, iterations);
+        for (Object event : events) {
+            for (EventMessageConverter converter : List.of(json, protobuf)) {
+                long[] best = measure(converter, event, iterations, rounds);
+                System.out.printf("  %-32s %-22s encode=%6d decode=%6d%n", label(event),
+                        converter == json ? MessageProperties.CONTENT_TYPE_JSON : EventMessageConverter.CONTENT_TYPE_PROTOBUF,
+                        best[0], best[1]);
+            }
+        }
+    }
+
+    private static long[] measure(EventMessageConverter converter, Object event, int iterations, int rounds) {
+        long bestEncode = Long.MAX_VALUE;
+        long bestDecode = Long.MAX_VALUE;
+        Object sink = null;
+        for (int round = 0; round < rounds; round++) {
+            Message message = null;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                message = converter.toMessage(event, new MessageProperties());
+            }
+            bestEncode = Math.min(bestEncode, (System.nanoTime() - start) / iterations);
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink = converter.fromMessage(message, event.getClass());
+            }
+            bestDecode = Math.min(bestDecode, (System.nanoTime() - start) / iterations);
+        }
+        check(event, sink);
+        return new long[]{bestEncode, bestDecode};
+    }
+
+    private static String label(Object event) {
+        return event instanceof BookingProcessedEvent processed
+                ? "BookingProcessedEvent/" + processed.status()
+                : event.getClass().getSimpleName();
+    }
+
+    private static void check(Object expected, Object actual) {
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException("Событие изменилось при кодировании: " + expected + " → " + actual);
+        }
+    }
+}
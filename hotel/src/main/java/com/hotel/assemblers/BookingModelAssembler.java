@@ -6,20 +6,41 @@ import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
+import java.util.function.Function;
 
 @Component
 public class BookingModelAssembler implements RepresentationModelAssembler<BookingResponse, EntityModel<BookingResponse>> {
 
+    private final LinkTemplates links;
+    private final Link collectionLink;
+
+    public BookingModelAssembler(LinkTemplates links) {
+        this.links = links;
+        this.collectionLink = Link.of(UriComponentsBuilder.fromPath(links.bookings())
+                .queryParam("page", 0)
+                .queryParam("size", 10)
+                .toUriString()).withRel("collection");
+    }
+
     @Override
     public EntityModel<BookingResponse> toModel(BookingResponse booking) {
+        return toModel(booking, links.baseUri());
+    }
+
+    /**
+     * Ассемблер с базовым URI, зафиксированным в текущем запросе, — для ответов,
+     * которые достраиваются вне потока запроса (long-poll).
+     */
+    public Function<BookingResponse, EntityModel<BookingResponse>> boundToCurrentRequest() {
+        String baseUri = links.baseUri();
+        return booking -> toModel(booking, baseUri);
+    }
+
+    private EntityModel<BookingResponse> toModel(BookingResponse booking, String baseUri) {
         return EntityModel.of(booking,
-                linkTo(methodOn(com.hotel.controller.HotelController.class).getBooking(booking.getBookingId())).withSelfRel(),
-                linkTo(methodOn(com.hotel.controller.HotelController.class).cancelBooking(new com.hotel.api.dto.CancelBookingRequest(booking.getBookingId()))).withRel("cancel"),
-                Link.of(UriComponentsBuilder.fromPath("/api/bookings")
-                        .queryParam("page", 0)
-                        .queryParam("size", 10)
-                        .toUriString()).withRel("collection")
+                Link.of(links.booking(baseUri, booking.getBookingId())).withSelfRel(),
+                Link.of(links.cancelBooking(baseUri)).withRel("cancel"),
+                collectionLink
         );
     }
-}
\ No newline at end of file
+}
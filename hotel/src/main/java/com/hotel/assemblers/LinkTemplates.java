@@ -0,0 +1,88 @@
+package com.hotel.assemblers;
+
+import com.hotel.api.endpoints.HotelApi;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Шаблоны ссылок HATEOAS, разобранные один раз при старте из маппингов HotelApi.
+ * Базовый URI (схема, хост, context path) вычисляется один раз на запрос и кэшируется
+ * в атрибутах запроса; ссылка на элемент — конкатенация строк без methodOn-прокси.
+ */
+@Component
+public class LinkTemplates {
+
+    private static final String BASE_URI_ATTRIBUTE = LinkTemplates.class.getName() + ".baseUri";
+
+    private final String bookingPrefix;
+    private final String bookingSuffix;
+    private final String cancelBookingPath;
+    private final String bookingsPath;
+    private final String searchHotelsPath;
+
+    public LinkTemplates() {
+        String bookingTemplate = pathOf("getBooking", String.class);
+        int variable = bookingTemplate.indexOf("{id}");
+        if (variable < 0) {
+            throw new IllegalStateException("Маппинг getBooking не содержит {id}: " + bookingTemplate);
+        }
+        this.bookingPrefix = bookingTemplate.substring(0, variable);
+        this.bookingSuffix = bookingTemplate.substring(variable + "{id}".length());
+        this.cancelBookingPath = pathOf("cancelBooking", com.hotel.api.dto.CancelBookingRequest.class);
+        this.bookingsPath = pathOf("listBookings", int.class, int.class, String.class);
+        this.searchHotelsPath = pathOf("searchHotels", com.hotel.api.dto.HotelSearchRequest.class);
+    }
+
+    /**
+     * Базовый URI текущего запроса; вне запроса — пустая строка (относительные ссылки).
+     */
+    public String baseUri() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return "";
+        }
+        Object cached = attributes.getAttribute(BASE_URI_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (cached != null) {
+            return (String) cached;
+        }
+        String base = ServletUriComponentsBuilder.fromCurrentServletMapping().build().toUriString();
+        attributes.setAttribute(BASE_URI_ATTRIBUTE, base, RequestAttributes.SCOPE_REQUEST);
+        return base;
+    }
+
+    public String booking(String baseUri, String bookingId) {
+        return baseUri + bookingPrefix + UriUtils.encodePathSegment(bookingId, StandardCharsets.UTF_8) + bookingSuffix;
+    }
+
+    public String cancelBooking(String baseUri) {
+        return baseUri + cancelBookingPath;
+    }
+
+    public String bookings() {
+        return bookingsPath;
+    }
+
+    public String searchHotels(String baseUri) {
+        return baseUri + searchHotelsPath;
+    }
+
+    private static String pathOf(String methodName, Class<?>... parameterTypes) {
+        Method method = ReflectionUtils.findMethod(HotelApi.class, methodName, parameterTypes);
+        RequestMapping mapping = method != null
+                ? AnnotatedElementUtils.findMergedAnnotation(method, RequestMapping.class)
+                : null;
+        if (mapping == null || mapping.path().length == 0) {
+            throw new IllegalStateException("Не найден маппинг HotelApi." + methodName);
+        }
+        return mapping.path()[0];
+    }
+}
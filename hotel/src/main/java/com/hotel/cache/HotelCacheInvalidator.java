@@ -0,0 +1,77 @@
+package com.hotel.cache;
+
+import com.hotel.datasource.DataSourceRouting;
+import com.hotel.entity.Hotel;
+import com.hotel.repo.HotelRepository;
+import com.hotel.search.HotelSearchIndex;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Межэкземплярная инвалидация кэша отелей: изменение отеля рассылается через fanout exchange,
+ * каждый экземпляр gateway слушает собственную временную очередь и вытесняет отель
+ * из второго уровня Hibernate, сбрасывает кэш запросов и обновляет индекс поиска.
+ */
+@Component
+public class HotelCacheInvalidator {
+
+    public static final String EXCHANGE = "hotel-cache-invalidation-fanout";
+
+    private static final Logger log = LoggerFactory.getLogger(HotelCacheInvalidator.class);
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final RabbitTemplate rabbitTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final HotelRepository hotelRepository;
+    private final HotelSearchIndex searchIndex;
+
+    public HotelCacheInvalidator(RabbitTemplate rabbitTemplate,
+                                 EntityManagerFactory entityManagerFactory,
+                                 HotelRepository hotelRepository,
+                                 HotelSearchIndex searchIndex) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.hotelRepository = hotelRepository;
+        this.searchIndex = searchIndex;
+    }
+
+    @EventListener
+    public void onHotelChanged(HotelChangedEvent event) {
+        try {
+            rabbitTemplate.convertAndSend(EXCHANGE, "", new HotelInvalidationMessage(event.hotelId(), instanceId));
+        } catch (Exception e) {
+            log.warn("Не удалось разослать инвалидацию отеля {}: {}", event.hotelId(), e.getMessage());
+        }
+    }
+
+    @RabbitListener(bindings = @QueueBinding(
+            value = @Queue(durable = "false", exclusive = "true", autoDelete = "true"),
+            exchange = @Exchange(name = EXCHANGE, type = "fanout")
+    ))
+    public void onRemoteInvalidation(HotelInvalidationMessage message) {
+        if (instanceId.equals(message.origin()) || message.hotelId() == null) {
+            return;
+        }
+
+        entityManagerFactory.getCache().evict(Hotel.class, message.hotelId());
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictDefaultQueryRegion();
+
+        // реплика может ещё не получить изменение — перечитываем с primary, иначе устаревший отель
+        // снова попадёт во второй уровень кэша и в индекс
+        DataSourceRouting.onPrimary(() -> hotelRepository.findById(message.hotelId()))
+                .ifPresentOrElse(searchIndex::upsert, () -> searchIndex.remove(message.hotelId()));
+
+        log.debug("Кэш отеля {} сброшен по сообщению от {}", message.hotelId(), message.origin());
+    }
+}
@@ -0,0 +1,7 @@
+package com.hotel.cache;
+
+/**
+ * Локальное событие: строка Hotel изменена и транзакция закоммичена.
+ */
+public record HotelChangedEvent(String hotelId) {
+}
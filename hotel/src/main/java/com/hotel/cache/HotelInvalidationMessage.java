@@ -0,0 +1,7 @@
+package com.hotel.cache;
+
+/**
+ * Сообщение об изменении отеля для остальных экземпляров gateway.
+ */
+public record HotelInvalidationMessage(String hotelId, String origin) {
+}
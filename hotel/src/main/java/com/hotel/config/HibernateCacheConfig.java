@@ -0,0 +1,69 @@
+package com.hotel.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.hotel.entity.Hotel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Второй уровень кэша Hibernate на Caffeine (JCache): регион сущности Hotel и регион кэша запросов
+ * ограничены по размеру и TTL, статистика Caffeine экспортируется в Micrometer (cache.gets, cache.evictions).
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(MeterRegistry meterRegistry,
+                                              @Value("${hotel.cache.hotels.ttl-seconds:600}") long hotelsTtlSeconds,
+                                              @Value("${hotel.cache.hotels.max-size:10000}") long hotelsMaxSize,
+                                              @Value("${hotel.cache.queries.ttl-seconds:60}") long queriesTtlSeconds,
+                                              @Value("${hotel.cache.queries.max-size:1000}") long queriesMaxSize) {
+        CacheManager cacheManager = Caching
+                .getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager();
+
+        createRegion(cacheManager, meterRegistry, Hotel.class.getName(), hotelsTtlSeconds, hotelsMaxSize);
+        createRegion(cacheManager, meterRegistry, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                queriesTtlSeconds, queriesMaxSize);
+        // временные метки обновления таблиц не должны вытесняться раньше результатов запросов
+        createRegion(cacheManager, meterRegistry, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, 0, 0);
+
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    private static void createRegion(CacheManager cacheManager, MeterRegistry meterRegistry,
+                                     String name, long ttlSeconds, long maxSize) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        if (ttlSeconds > 0) {
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        }
+        if (maxSize > 0) {
+            configuration.setMaximumSize(OptionalLong.of(maxSize));
+        }
+        configuration.setNativeStatisticsEnabled(true);
+
+        javax.cache.Cache<Object, Object> cache = cacheManager.createCache(name, configuration);
+        // unwrap принимает только сырой Class; регион создан с <Object, Object>
+        @SuppressWarnings("unchecked")
+        Cache<Object, Object> nativeCache = cache.unwrap(Cache.class);
+        CaffeineCacheMetrics.monitor(meterRegistry, nativeCache, name);
+    }
+}
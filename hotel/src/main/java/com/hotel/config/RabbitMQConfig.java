@@ -1,10 +1,16 @@
 package com.hotel.config;
 
+import com.hotel.events.amqp.EventMessageConverter;
+import com.hotel.events.amqp.retry.DlqReplayer;
+import com.hotel.events.amqp.retry.RetryPolicy;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -20,6 +26,7 @@ public class RabbitMQConfig {
     public static final String DLQ_BOOKING_CANCELLED = "dlq-booking-cancelled";
 
     public static final String FANOUT_EXCHANGE = "booking-orchestration-fanout";
+    public static final String ORCHESTRATION_QUEUE = "q.hotel.orchestration";
 
     @Bean
     public TopicExchange bookingsExchange() {
@@ -55,20 +62,73 @@ public class RabbitMQConfig {
                 .with("dlq.booking.cancelled");
     }
 
+    /**
+     * Результаты оркестрации, которые не удалось применить, ждут в TTL-очередях задержки
+     * с экспоненциальным ростом паузы и возвращаются в ORCHESTRATION_QUEUE; после max-attempts — в parking lot.
+     */
+    @Bean
+    public RetryPolicy orchestrationRetryPolicy(
+            @Value("${hotel.orchestration.retry.initial-delay-ms:1000}") long initialDelayMs,
+            @Value("${hotel.orchestration.retry.multiplier:4}") double multiplier,
+            @Value("${hotel.orchestration.retry.max-attempts:5}") int maxAttempts,
+            @Value("${hotel.orchestration.retry.jitter:0.2}") double jitter) {
+        return new RetryPolicy(ORCHESTRATION_QUEUE, initialDelayMs, multiplier, maxAttempts, jitter);
+    }
+
+    @Bean
+    public Declarables orchestrationRetryTopology(RetryPolicy orchestrationRetryPolicy) {
+        return orchestrationRetryPolicy.declarables();
+    }
+
+    @Bean
+    public DlqReplayer dlqReplayer(RabbitTemplate rabbitTemplate,
+                                   @Value("${hotel.dlq-replay.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        return new DlqReplayer(rabbitTemplate, confirmTimeoutMs);
+    }
+
     @Bean
     public FanoutExchange orchestrationExchange() {
         return new FanoutExchange(FANOUT_EXCHANGE, true, false);
     }
 
+    /**
+     * events.content-type — формат событий бронирования, которые gateway пишет в outbox
+     * (созданные, оплаченные, отменённые); инвалидации кэша отелей всегда в JSON.
+     * Результаты оркестрации читаются в любом формате.
+     */
     @Bean
-    public MessageConverter jsonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public EventMessageConverter eventMessageConverter(
+            @Value("${events.content-type:application/json}") String producerContentType) {
+        return new EventMessageConverter(new Jackson2JsonMessageConverter(), producerContentType);
     }
 
     @Bean
-    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessageConverter eventMessageConverter) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
-        template.setMessageConverter(jsonMessageConverter());
+        template.setMessageConverter(eventMessageConverter);
+        // возвраты unroutable-сообщений попадают в CorrelationData публикации
+        template.setMandatory(true);
         return template;
     }
+
+    /**
+     * Фабрика для пакетного потребления q.hotel.orchestration: пачка собирается до batchSize сообщений
+     * или до паузы receiveTimeout, подтверждение — вручную по результату применения.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory orchestrationBatchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${hotel.orchestration.batch-size:50}") int batchSize,
+            @Value("${hotel.orchestration.batch-receive-timeout-ms:200}") long receiveTimeoutMs) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeoutMs);
+        factory.setPrefetchCount(batchSize * 2);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        return factory;
+    }
 }
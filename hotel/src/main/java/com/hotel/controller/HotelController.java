@@ -4,15 +4,25 @@ import com.hotel.assemblers.BookingModelAssembler;
 import com.hotel.assemblers.HotelModelAssembler;
 import com.hotel.api.endpoints.HotelApi;
 import com.hotel.api.dto.*;
+import com.hotel.api.exception.ValidationException;
+import com.hotel.service.BookingStatusWaiters;
+import com.hotel.service.CursorPage;
 import com.hotel.service.HotelService;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.data.domain.Page;
 import org.springframework.data.web.PagedResourcesAssembler;
 import org.springframework.hateoas.*;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -22,15 +32,18 @@ public class HotelController implements HotelApi {
     private final BookingModelAssembler bookingAssembler;
     private final HotelModelAssembler hotelAssembler;
     private final PagedResourcesAssembler<BookingResponse> pagedResourcesAssembler;
+    private final BookingStatusWaiters statusWaiters;
 
     public HotelController(HotelService hotelService,
                            BookingModelAssembler bookingAssembler,
                            HotelModelAssembler hotelAssembler,
-                           PagedResourcesAssembler<BookingResponse> pagedResourcesAssembler) {
+                           PagedResourcesAssembler<BookingResponse> pagedResourcesAssembler,
+                           BookingStatusWaiters statusWaiters) {
         this.hotelService = hotelService;
         this.bookingAssembler = bookingAssembler;
         this.hotelAssembler = hotelAssembler;
         this.pagedResourcesAssembler = pagedResourcesAssembler;
+        this.statusWaiters = statusWaiters;
     }
 
     @Override
@@ -72,11 +85,59 @@ public class HotelController implements HotelApi {
         return bookingAssembler.toModel(booking);
     }
 
+    @Override
+    public DeferredResult<EntityModel<BookingResponse>> awaitBooking(String id, List<String> waitFor, String timeout) {
+        Set<String> statuses = new HashSet<>();
+        for (String status : waitFor) {
+            for (String part : status.split(",")) {
+                if (!part.isBlank()) {
+                    statuses.add(part.trim().toUpperCase(Locale.ROOT));
+                }
+            }
+        }
+        long timeoutMs;
+        try {
+            timeoutMs = DurationStyle.detectAndParse(timeout, ChronoUnit.SECONDS).toMillis();
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Некорректный timeout: " + timeout);
+        }
+        if (timeoutMs <= 0) {
+            // DeferredResult с таймаутом 0 ждёт до таймаута контейнера
+            throw new ValidationException("timeout должен быть положительным: " + timeout);
+        }
+        return statusWaiters.await(id, statuses, timeoutMs, bookingAssembler.boundToCurrentRequest());
+    }
+
     @Override
     public PagedModel<EntityModel<BookingResponse>> listBookings(
             @RequestParam(name = "page", defaultValue = "0") int page,
-            @RequestParam(name = "size", defaultValue = "10") int size) {
-        Page<BookingResponse> pageResult = hotelService.listBookings(page, size);
-        return pagedResourcesAssembler.toModel(pageResult, bookingAssembler);
+            @RequestParam(name = "size", defaultValue = "10") int size,
+            @RequestParam(name = "cursor", required = false) String cursor) {
+        if (page < 0) {
+            throw new ValidationException("page не может быть отрицательной");
+        }
+        if (size <= 0 || size > 100) {
+            throw new ValidationException("size должен быть в диапазоне 1-100");
+        }
+        if (cursor == null && page > 0) {
+            Page<BookingResponse> pageResult = hotelService.listBookings(page, size);
+            return pagedResourcesAssembler.toModel(pageResult, bookingAssembler);
+        }
+
+        CursorPage<BookingResponse> slice = hotelService.listBookings(cursor, size);
+        var models = slice.content().stream().map(bookingAssembler::toModel).collect(Collectors.toList());
+        long totalPages = (slice.estimatedTotal() + size - 1) / size;
+        // у страницы по cursor номера нет: number = 0 верен только для первой страницы
+        PagedModel.PageMetadata metadata = new PagedModel.PageMetadata(size, 0, slice.estimatedTotal(), totalPages);
+
+        PagedModel<EntityModel<BookingResponse>> model = PagedModel.of(models, metadata,
+                Link.of(ServletUriComponentsBuilder.fromCurrentRequest().toUriString()).withSelfRel());
+        if (slice.nextCursor() != null) {
+            model.add(Link.of(ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("page")
+                    .replaceQueryParam("cursor", slice.nextCursor())
+                    .toUriString()).withRel(IanaLinkRelations.NEXT));
+        }
+        return model;
     }
 }
\ No newline at end of file
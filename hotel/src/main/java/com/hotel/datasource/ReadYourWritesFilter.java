@@ -0,0 +1,180 @@
+package com.hotel.datasource;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.language.OperationDefinition;
+import graphql.parser.Parser;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-your-writes для клиентов: изменяющий запрос выставляет cookie со временем,
+ * до которого чтения этого клиента идут на primary (окно больше допустимого отставания реплики).
+ * GraphQL-запросы приходят POST'ом и на чтение, поэтому для /graphql изменяющим считается
+ * только запрос с mutation-операцией. Тело читается в память только для /graphql и только
+ * если его Content-Length не больше maxBodyBytes; больший или chunked запрос считается изменяющим.
+ */
+public class ReadYourWritesFilter implements Filter {
+
+    static final String COOKIE_NAME = "hotel-primary-until";
+    private static final String GRAPHQL_PATH = "/graphql";
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final long windowMs;
+    private final int maxBodyBytes;
+
+    public ReadYourWritesFilter(long windowMs, int maxBodyBytes) {
+        this.windowMs = windowMs;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain)
+            throws IOException, ServletException {
+
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+        long now = System.currentTimeMillis();
+
+        boolean write = isWrite(request.getMethod());
+        if (write && GRAPHQL_PATH.equals(request.getRequestURI().substring(request.getContextPath().length()))
+                && request.getContentLengthLong() >= 0 && request.getContentLengthLong() <= maxBodyBytes) {
+            CachedBodyRequest cached = new CachedBodyRequest(request, (int) request.getContentLengthLong());
+            request = cached;
+            write = isMutation(cached.body);
+        }
+
+        boolean primary = write || primaryUntil(request) > now;
+        if (write) {
+            Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(now + windowMs));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, windowMs / 1000));
+            response.addCookie(cookie);
+        }
+
+        if (!primary) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        DataSourceRouting.forcePrimary();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            DataSourceRouting.clear();
+        }
+    }
+
+    private static boolean isWrite(String method) {
+        return !"GET".equals(method) && !"HEAD".equals(method) && !"OPTIONS".equals(method);
+    }
+
+    /** Операция из тела GraphQL-запроса; нераспознанный запрос выполнится с ошибкой и считается чтением. */
+    private static boolean isMutation(byte[] body) {
+        try {
+            JsonNode json = objectMapper.readTree(body);
+            String query = json.path("query").asText(null);
+            if (query == null) {
+                return false;
+            }
+            String operationName = json.path("operationName").asText(null);
+            return Parser.parse(query).getDefinitionsOfType(OperationDefinition.class).stream()
+                    .filter(op -> operationName == null || operationName.equals(op.getName()))
+                    .anyMatch(op -> op.getOperation() == OperationDefinition.Operation.MUTATION);
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static long primaryUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /** Тело читается заранее, чтобы определить операцию, и отдаётся дальше по цепочке повторно. */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, int contentLength) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readNBytes(contentLength);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    // тело уже в памяти: isReady() всегда true, и слушатель вычитывает его за один вызов
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            readListener.onAllDataRead();
+                        }
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.hotel.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Периодически измеряет отставание реплики (время с последней применённой транзакции,
+ * ноль если WAL применён полностью). При отставании больше допустимого или недоступности
+ * реплики чтения временно уходят на primary. Сервер не в режиме recovery — не standby и записей
+ * не получает, поэтому для чтения не используется вовсе.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private static final String LAG_SQL =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() THEN NULL " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM (now() - pg_last_xact_replay_timestamp())) * 1000, 0) END";
+
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final long maxLagMs;
+
+    private volatile double lagMs = 0;
+    private volatile boolean usable = false;
+    private volatile boolean standby = true;
+
+    public ReplicaLagMonitor(DataSource replicaDataSource, long maxLagMs, MeterRegistry meterRegistry) {
+        this.replicaJdbcTemplate = new JdbcTemplate(replicaDataSource);
+        this.maxLagMs = maxLagMs;
+        Gauge.builder("hotel.datasource.replica.lag", this, m -> m.lagMs)
+                .description("Отставание реплики БД gateway, мс")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("hotel.datasource.replica.usable", this, m -> m.usable ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    public boolean isReplicaUsable() {
+        return usable;
+    }
+
+    @Scheduled(fixedDelayString = "${hotel.datasource.replica.lag-check-interval-ms:1000}")
+    public void check() {
+        boolean wasUsable = usable;
+        boolean wasStandby = standby;
+        try {
+            Double lag = replicaJdbcTemplate.queryForObject(LAG_SQL, Double.class);
+            standby = lag != null;
+            if (standby) {
+                lagMs = lag;
+                usable = lagMs <= maxLagMs;
+            } else {
+                usable = false;
+            }
+        } catch (Exception e) {
+            usable = false;
+            log.debug("Проверка отставания реплики не удалась: {}", e.getMessage());
+        }
+
+        if (wasStandby && !standby) {
+            log.error("Реплика БД исключена из чтения: сервер не в режиме recovery и записей с primary не получает");
+        } else if (wasUsable != usable && standby) {
+            log.warn("Реплика БД {}: отставание {} мс (допустимо {} мс)",
+                    usable ? "снова используется для чтения" : "исключена из чтения", (long) lagMs, maxLagMs);
+        }
+    }
+}
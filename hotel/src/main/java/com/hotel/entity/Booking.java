@@ -2,12 +2,13 @@ package com.hotel.entity;
 
 import jakarta.persistence.*;
 import java.time.LocalDate;
+import java.util.UUID;
 
 @Entity
 @Table(name = "bookings")
 public class Booking {
     @Id
-    private String bookingId;
+    private UUID bookingId;
     private String hotelId;
     private String status;
     private String customerName;
@@ -15,6 +16,8 @@ public class Booking {
     private LocalDate checkIn;
     private LocalDate checkOut;
     private Integer guests;
+    private String roomType;
+    private Integer rooms;
     private Double finalPrice;
     private Double discount;
     private String rejectionReason;
@@ -24,8 +27,8 @@ public class Booking {
 
     public Booking() {}
 
-    public String getBookingId() { return bookingId; }
-    public void setBookingId(String bookingId) { this.bookingId = bookingId; }
+    public UUID getBookingId() { return bookingId; }
+    public void setBookingId(UUID bookingId) { this.bookingId = bookingId; }
     public String getHotelId() { return hotelId; }
     public void setHotelId(String hotelId) { this.hotelId = hotelId; }
     public String getStatus() { return status; }
@@ -40,6 +43,10 @@ public class Booking {
     public void setCheckOut(LocalDate checkOut) { this.checkOut = checkOut; }
     public Integer getGuests() { return guests; }
     public void setGuests(Integer guests) { this.guests = guests; }
+    public String getRoomType() { return roomType; }
+    public void setRoomType(String roomType) { this.roomType = roomType; }
+    public Integer getRooms() { return rooms; }
+    public void setRooms(Integer rooms) { this.rooms = rooms; }
     public Double getFinalPrice() {
         return finalPrice;
     }
@@ -1,9 +1,15 @@
 package com.hotel.entity;
 
+import com.hotel.search.HotelIndexEntityListener;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "hotels")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@EntityListeners(HotelIndexEntityListener.class)
 public class Hotel {
     @Id
     private String hotelId;
@@ -13,6 +19,7 @@ public class Hotel {
     private String address;
     private Double pricePerNight;
     private Boolean available;
+    private Integer totalRooms;
 
     public Hotel() {}
 
@@ -37,4 +44,6 @@ public class Hotel {
     public void setPricePerNight(Double pricePerNight) { this.pricePerNight = pricePerNight; }
     public Boolean getAvailable() { return available; }
     public void setAvailable(Boolean available) { this.available = available; }
+    public Integer getTotalRooms() { return totalRooms; }
+    public void setTotalRooms(Integer totalRooms) { this.totalRooms = totalRooms; }
 }
\ No newline at end of file
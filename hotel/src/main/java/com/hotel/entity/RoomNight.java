@@ -0,0 +1,30 @@
+package com.hotel.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Одна ночь в календаре номеров: сколько номеров типа roomType в отеле занято на stayDate.
+ * Каждая ночь — отдельная строка, поэтому бронирование блокирует только свои даты.
+ */
+@Entity
+@Table(name = "room_nights")
+public class RoomNight {
+
+    @EmbeddedId
+    private RoomNightId id;
+
+    @Column(nullable = false)
+    private int capacity;
+
+    @Column(nullable = false)
+    private int reserved;
+
+    public RoomNight() {}
+
+    public RoomNightId getId() { return id; }
+    public void setId(RoomNightId id) { this.id = id; }
+    public int getCapacity() { return capacity; }
+    public void setCapacity(int capacity) { this.capacity = capacity; }
+    public int getReserved() { return reserved; }
+    public void setReserved(int reserved) { this.reserved = reserved; }
+}
@@ -0,0 +1,48 @@
+package com.hotel.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+@Embeddable
+public class RoomNightId implements Serializable {
+
+    @Column(name = "hotel_id", nullable = false)
+    private String hotelId;
+
+    @Column(name = "room_type", nullable = false, length = 32)
+    private String roomType;
+
+    @Column(name = "stay_date", nullable = false)
+    private LocalDate stayDate;
+
+    public RoomNightId() {}
+
+    public RoomNightId(String hotelId, String roomType, LocalDate stayDate) {
+        this.hotelId = hotelId;
+        this.roomType = roomType;
+        this.stayDate = stayDate;
+    }
+
+    public String getHotelId() { return hotelId; }
+    public String getRoomType() { return roomType; }
+    public LocalDate getStayDate() { return stayDate; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RoomNightId that = (RoomNightId) o;
+        return Objects.equals(hotelId, that.hotelId)
+                && Objects.equals(roomType, that.roomType)
+                && Objects.equals(stayDate, that.stayDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(hotelId, roomType, stayDate);
+    }
+}
@@ -1,63 +0,0 @@
-package com.hotel.filters;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.slf4j.MDC;
-import org.springframework.core.annotation.Order;
-import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
-
-import jakarta.servlet.Filter;
-import jakarta.servlet.FilterChain;
-import jakarta.servlet.ServletException;
-import jakarta.servlet.ServletRequest;
-import jakarta.servlet.ServletResponse;
-import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
-import java.io.IOException;
-import java.util.UUID;
-
-@Component
-@Order(1)
-public class LoggingAndTracingFilter implements Filter {
-
-    private static final Logger log = LoggerFactory.getLogger(LoggingAndTracingFilter.class);
-    private static final String CORRELATION_ID_HEADER = "X-Request-ID";
-    private static final String CORRELATION_ID_MDC_KEY = "correlationId";
-
-    @Override
-    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain)
-            throws IOException, ServletException {
-
-        HttpServletRequest request = (HttpServletRequest) servletRequest;
-        HttpServletResponse response = (HttpServletResponse) servletResponse;
-
-        String correlationId = request.getHeader(CORRELATION_ID_HEADER);
-        if (!StringUtils.hasText(correlationId)) {
-            correlationId = UUID.randomUUID().toString();
-        }
-
-        MDC.put(CORRELATION_ID_MDC_KEY, correlationId);
-
-        response.setHeader(CORRELATION_ID_HEADER, correlationId);
-
-        long startTime = System.currentTimeMillis();
-        boolean isApiRequest = request.getRequestURI() != null && request.getRequestURI().startsWith("/api");
-
-        try {
-            if (isApiRequest) {
-                log.info("Request started: {} {}", request.getMethod(), request.getRequestURI());
-            }
-
-            filterChain.doFilter(request, response);
-
-        } finally {
-            long duration = System.currentTimeMillis() - startTime;
-            if (isApiRequest) {
-                log.info("Request finished: {} {} with status {} in {}ms",
-                        request.getMethod(), request.getRequestURI(), response.getStatus(), duration);
-            }
-            MDC.remove(CORRELATION_ID_MDC_KEY);
-        }
-    }
-}
\ No newline at end of file
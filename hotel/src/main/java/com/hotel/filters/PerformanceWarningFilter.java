@@ -1,38 +0,0 @@
-package com.hotel.filters;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.core.annotation.Order;
-import org.springframework.stereotype.Component;
-
-import jakarta.servlet.Filter;
-import jakarta.servlet.FilterChain;
-import jakarta.servlet.ServletException;
-import jakarta.servlet.ServletRequest;
-import jakarta.servlet.ServletResponse;
-import jakarta.servlet.http.HttpServletRequest;
-import java.io.IOException;
-
-@Component
-@Order(2)
-public class PerformanceWarningFilter implements Filter {
-
-    private static final Logger log = LoggerFactory.getLogger(PerformanceWarningFilter.class);
-    private static final long SLOW_REQUEST_THRESHOLD_MS = 20L;
-
-    @Override
-    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain)
-            throws IOException, ServletException {
-
-        HttpServletRequest request = (HttpServletRequest) servletRequest;
-        long start = System.currentTimeMillis();
-        try {
-            filterChain.doFilter(servletRequest, servletResponse);
-        } finally {
-            long duration = System.currentTimeMillis() - start;
-            if (duration > SLOW_REQUEST_THRESHOLD_MS) {
-                log.warn("Slow request detected: {} {} took {}ms", request.getMethod(), request.getRequestURI(), duration);
-            }
-        }
-    }
-}
\ No newline at end of file
@@ -0,0 +1,188 @@
+package com.hotel.filters;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Единый фильтр инструментирования /api: correlation id в MDC, таймер hotel.http.requests
+ * по шаблону маршрута, методу и классу статуса (гистограмма + p50/p95/p99), в лог попадают
+ * только выборка запросов и "хвост" — запросы дольше p99 своего маршрута.
+ * Порог p99 пересчитывается по расписанию, а не на каждый запрос.
+ */
+@Component
+@Order(1)
+public class RequestInstrumentationFilter implements Filter {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestInstrumentationFilter.class);
+    private static final String CORRELATION_ID_HEADER = "X-Request-ID";
+    private static final String CORRELATION_ID_MDC_KEY = "correlationId";
+    private static final String UNMATCHED_ROUTE = "UNMATCHED";
+    private static final String[] STATUS_CLASSES = {"1xx", "1xx", "2xx", "3xx", "4xx", "5xx"};
+    private static final int SUCCESS = 2;
+
+    private final MeterRegistry meterRegistry;
+    private final double logSampleRate;
+    private final long thresholdFloorNanos;
+    private final long minSamples;
+    private final ConcurrentHashMap<RouteKey, RouteStats> routes = new ConcurrentHashMap<>();
+
+    public RequestInstrumentationFilter(MeterRegistry meterRegistry,
+                                        @Value("${hotel.http.log-sample-rate:0.01}") double logSampleRate,
+                                        @Value("${hotel.http.slow-threshold-floor-ms:20}") long thresholdFloorMs,
+                                        @Value("${hotel.http.slow-threshold-min-samples:200}") long minSamples) {
+        this.meterRegistry = meterRegistry;
+        this.logSampleRate = logSampleRate;
+        this.thresholdFloorNanos = TimeUnit.MILLISECONDS.toNanos(thresholdFloorMs);
+        this.minSamples = minSamples;
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain)
+            throws IOException, ServletException {
+
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+
+        String correlationId = request.getHeader(CORRELATION_ID_HEADER);
+        if (!StringUtils.hasText(correlationId)) {
+            correlationId = UUID.randomUUID().toString();
+        }
+        MDC.put(CORRELATION_ID_MDC_KEY, correlationId);
+        response.setHeader(CORRELATION_ID_HEADER, correlationId);
+
+        boolean isApiRequest = request.getRequestURI() != null && request.getRequestURI().startsWith("/api");
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (isApiRequest) {
+                if (request.isAsyncStarted()) {
+                    // long-poll: время считаем до фактического ответа, а не до выхода из фильтра
+                    request.getAsyncContext().addListener(new CompletionListener(start, correlationId));
+                } else {
+                    record(request, response, System.nanoTime() - start);
+                }
+            }
+            MDC.remove(CORRELATION_ID_MDC_KEY);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${hotel.http.threshold-refresh-ms:10000}")
+    public void refreshThresholds() {
+        for (RouteStats stats : routes.values()) {
+            Timer timer = stats.timers[SUCCESS];
+            if (timer == null || timer.count() < minSamples) {
+                continue;
+            }
+            for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+                if (percentile.percentile() == 0.99) {
+                    long p99 = (long) percentile.value(TimeUnit.NANOSECONDS);
+                    stats.slowThresholdNanos = Math.max(thresholdFloorNanos, p99);
+                }
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response, long durationNanos) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = pattern != null ? pattern.toString() : UNMATCHED_ROUTE;
+        String method = request.getMethod();
+        int status = response.getStatus();
+        int statusClass = Math.min(Math.max(status / 100, 1), 5);
+
+        RouteStats stats = routes.computeIfAbsent(new RouteKey(method, route), key -> new RouteStats());
+        stats.timer(statusClass, method, route).record(durationNanos, TimeUnit.NANOSECONDS);
+
+        if (durationNanos > stats.slowThresholdNanos) {
+            log.warn("Slow request: {} {} ({}) status {} in {}ms, route p99 threshold {}ms",
+                    method, request.getRequestURI(), route, status,
+                    TimeUnit.NANOSECONDS.toMillis(durationNanos),
+                    TimeUnit.NANOSECONDS.toMillis(stats.slowThresholdNanos));
+        } else if (logSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < logSampleRate) {
+            log.info("Request finished (sampled): {} {} with status {} in {}ms",
+                    method, request.getRequestURI(), status, TimeUnit.NANOSECONDS.toMillis(durationNanos));
+        }
+    }
+
+    private record RouteKey(String method, String route) {
+    }
+
+    private final class RouteStats {
+        final Timer[] timers = new Timer[STATUS_CLASSES.length];
+        volatile long slowThresholdNanos = thresholdFloorNanos;
+
+        Timer timer(int statusClass, String method, String route) {
+            Timer timer = timers[statusClass];
+            if (timer == null) {
+                timer = Timer.builder("hotel.http.requests")
+                        .description("Время обработки запросов /api по маршрутам")
+                        .tag("method", method)
+                        .tag("route", route)
+                        .tag("status", STATUS_CLASSES[statusClass])
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry);
+                timers[statusClass] = timer;
+            }
+            return timer;
+        }
+    }
+
+    private final class CompletionListener implements AsyncListener {
+        private final long start;
+        private final String correlationId;
+
+        CompletionListener(long start, String correlationId) {
+            this.start = start;
+            this.correlationId = correlationId;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            MDC.put(CORRELATION_ID_MDC_KEY, correlationId);
+            try {
+                record((HttpServletRequest) event.getSuppliedRequest(), (HttpServletResponse) event.getSuppliedResponse(),
+                        System.nanoTime() - start);
+            } finally {
+                MDC.remove(CORRELATION_ID_MDC_KEY);
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
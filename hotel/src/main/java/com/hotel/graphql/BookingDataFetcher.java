@@ -3,14 +3,17 @@ package com.hotel.graphql;
 import com.hotel.api.dto.BookingRequest;
 import com.hotel.api.dto.BookingResponse;
 import com.hotel.api.dto.CancelBookingRequest;
+import com.hotel.api.dto.HotelSearchResponse;
 import com.hotel.api.dto.StatusResponse;
+import com.hotel.service.CursorPage;
 import com.hotel.service.HotelService;
 import com.netflix.graphql.dgs.DgsComponent;
 import com.netflix.graphql.dgs.DgsData;
+import com.netflix.graphql.dgs.DgsDataFetchingEnvironment;
 import com.netflix.graphql.dgs.DgsMutation;
 import com.netflix.graphql.dgs.DgsQuery;
 import com.netflix.graphql.dgs.InputArgument;
-import graphql.schema.DataFetchingEnvironment;
+import org.dataloader.DataLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,6 +21,7 @@ import org.springframework.data.domain.Page;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @DgsComponent
 public class BookingDataFetcher {
@@ -40,7 +44,9 @@ public class BookingDataFetcher {
     }
 
     @DgsQuery
-    public Map<String, Object> bookings(@InputArgument("page") int page, @InputArgument("size") int size) {
+    public Map<String, Object> bookings(@InputArgument("page") int page,
+                                        @InputArgument("size") int size,
+                                        @InputArgument("cursor") String cursor) {
         if (page < 0) {
             throw new IllegalArgumentException("page не может быть отрицательной");
         }
@@ -48,6 +54,21 @@ public class BookingDataFetcher {
             throw new IllegalArgumentException("size должен быть в диапазоне 1-100");
         }
 
+        if (cursor != null || page == 0) {
+            CursorPage<BookingResponse> slice = hotelService.listBookings(cursor, size);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("content", slice.content());
+            // номер известен только у первой страницы, у страниц по cursor его нет
+            result.put("pageNumber", cursor == null ? 0 : null);
+            result.put("pageSize", slice.size());
+            result.put("totalElements", slice.estimatedTotal());
+            result.put("totalPages", (slice.estimatedTotal() + size - 1) / size);
+            result.put("last", slice.last());
+            result.put("nextCursor", slice.nextCursor());
+            return result;
+        }
+
         Page<BookingResponse> pageResult = hotelService.listBookings(page, size);
 
         Map<String, Object> result = new HashMap<>();
@@ -115,15 +136,14 @@ public class BookingDataFetcher {
     }
 
     @DgsData(parentType = "Booking", field = "hotel")
-    public Map<String, Object> hotel(DataFetchingEnvironment dfe) {
+    public CompletableFuture<HotelSearchResponse> hotel(DgsDataFetchingEnvironment dfe) {
         BookingResponse booking = dfe.getSource();
+        if (booking.getHotelId() == null) {
+            return CompletableFuture.completedFuture(null);
+        }
 
-        Map<String, Object> hotel = new HashMap<>();
-        hotel.put("hotelId", booking.getHotelId());
-        hotel.put("name", "Hotel Name");
-        hotel.put("city", "City");
-
-        return hotel;
+        DataLoader<String, HotelSearchResponse> hotels = dfe.getDataLoader(HotelDataLoader.class);
+        return hotels.load(booking.getHotelId());
     }
 
     private String parseString(Object value) {
@@ -0,0 +1,70 @@
+package com.hotel.graphql;
+
+import com.hotel.api.dto.HotelSearchResponse;
+import com.hotel.entity.Hotel;
+import com.hotel.repo.HotelRepository;
+import com.hotel.search.HotelSearchIndex;
+import com.netflix.graphql.dgs.DgsDataLoader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.dataloader.MappedBatchLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Загрузка отелей для Booking.hotel пачкой: DataLoader собирает все hotelId за время выполнения
+ * запроса (с дедупликацией в рамках запроса), отели берутся из индекса каталога,
+ * а отсутствующие в нём — одним запросом findAllById (IN).
+ */
+@DgsDataLoader(name = "hotels")
+public class HotelDataLoader implements MappedBatchLoader<String, HotelSearchResponse> {
+
+    private static final Logger log = LoggerFactory.getLogger(HotelDataLoader.class);
+
+    private final HotelSearchIndex searchIndex;
+    private final HotelRepository hotelRepository;
+    private final DistributionSummary batchSize;
+    private final Counter databaseLookups;
+
+    public HotelDataLoader(HotelSearchIndex searchIndex,
+                           HotelRepository hotelRepository,
+                           MeterRegistry meterRegistry) {
+        this.searchIndex = searchIndex;
+        this.hotelRepository = hotelRepository;
+        this.batchSize = DistributionSummary.builder("hotel.graphql.hotel-loader.batch-size")
+                .description("Количество hotelId в одной пачке DataLoader")
+                .register(meterRegistry);
+        this.databaseLookups = meterRegistry.counter("hotel.graphql.hotel-loader.db-lookups");
+    }
+
+    @Override
+    public CompletionStage<Map<String, HotelSearchResponse>> load(Set<String> hotelIds) {
+        batchSize.record(hotelIds.size());
+
+        Map<String, HotelSearchResponse> result = new HashMap<>(hotelIds.size() * 2);
+        List<String> missing = new ArrayList<>();
+        for (String hotelId : hotelIds) {
+            Optional<HotelSearchResponse> hotel = searchIndex.findById(hotelId);
+            if (hotel.isPresent()) {
+                result.put(hotelId, hotel.get());
+            } else {
+                missing.add(hotelId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            databaseLookups.increment();
+            for (Hotel hotel : hotelRepository.findAllById(missing)) {
+                result.put(hotel.getHotelId(), HotelSearchIndex.toResponse(hotel));
+            }
+        }
+
+        log.debug("DataLoader отелей: {} ключей, из БД {}", hotelIds.size(), missing.size());
+        return CompletableFuture.completedFuture(result);
+    }
+}
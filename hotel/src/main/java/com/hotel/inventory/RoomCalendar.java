@@ -0,0 +1,57 @@
+package com.hotel.inventory;
+
+/**
+ * Календарь занятости одного типа номеров в отеле: по одной ячейке short на день,
+ * начиная с baseDay (epoch day). Дни вне окна не отслеживаются и считаются свободными —
+ * окончательную проверку делает БД.
+ */
+final class RoomCalendar {
+
+    private final long baseDay;
+    private final short[] reserved;
+    private final int capacity;
+
+    RoomCalendar(long baseDay, int horizonDays, int capacity) {
+        this.baseDay = baseDay;
+        this.reserved = new short[horizonDays];
+        this.capacity = capacity;
+    }
+
+    synchronized boolean isAvailable(long fromDay, long toDay, int rooms) {
+        int limit = capacity - rooms;
+        if (limit < 0) {
+            return false;
+        }
+        int from = clamp(fromDay);
+        int to = clamp(toDay);
+        for (int i = from; i < to; i++) {
+            if (reserved[i] > limit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    synchronized void add(long fromDay, long toDay, int rooms) {
+        int from = clamp(fromDay);
+        int to = clamp(toDay);
+        for (int i = from; i < to; i++) {
+            reserved[i] = (short) Math.max(0, Math.min(Short.MAX_VALUE, reserved[i] + rooms));
+        }
+    }
+
+    synchronized void set(long day, int count) {
+        int idx = (int) (day - baseDay);
+        if (idx >= 0 && idx < reserved.length) {
+            reserved[idx] = (short) Math.max(0, Math.min(Short.MAX_VALUE, count));
+        }
+    }
+
+    private int clamp(long day) {
+        long idx = day - baseDay;
+        if (idx < 0) {
+            return 0;
+        }
+        return (int) Math.min(idx, reserved.length);
+    }
+}
@@ -0,0 +1,155 @@
+package com.hotel.inventory;
+
+import com.hotel.api.exception.RoomsUnavailableException;
+import com.hotel.entity.Booking;
+import com.hotel.entity.Hotel;
+import com.hotel.entity.RoomNight;
+import com.hotel.repo.RoomNightRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Учёт свободных номеров по ночам.
+ * Источник истины — таблица room_nights (атомарный условный UPDATE по строкам нужных дат),
+ * в памяти держится копия календарей для фильтрации поиска без обращения к БД.
+ */
+@Service
+public class RoomInventory {
+
+    public static final String DEFAULT_ROOM_TYPE = "STANDARD";
+
+    private static final Logger log = LoggerFactory.getLogger(RoomInventory.class);
+
+    private final RoomNightRepository roomNightRepository;
+    private final int defaultRooms;
+    private final int guestsPerRoom;
+    private final int horizonDays;
+
+    private volatile Map<String, RoomCalendar> calendars = new ConcurrentHashMap<>();
+    private volatile long baseDay = LocalDate.now().toEpochDay();
+
+    public RoomInventory(RoomNightRepository roomNightRepository,
+                         @Value("${hotel.inventory.default-rooms:20}") int defaultRooms,
+                         @Value("${hotel.inventory.guests-per-room:2}") int guestsPerRoom,
+                         @Value("${hotel.inventory.horizon-days:400}") int horizonDays) {
+        this.roomNightRepository = roomNightRepository;
+        this.defaultRooms = defaultRooms;
+        this.guestsPerRoom = guestsPerRoom;
+        this.horizonDays = horizonDays;
+    }
+
+    public int roomsFor(int guests) {
+        return Math.max(1, (guests + guestsPerRoom - 1) / guestsPerRoom);
+    }
+
+    public int capacityOf(Hotel hotel) {
+        return capacityOf(hotel.getTotalRooms());
+    }
+
+    public int capacityOf(Integer totalRooms) {
+        return totalRooms != null ? totalRooms : defaultRooms;
+    }
+
+    /** totalRooms нужен, пока по отелю нет календаря: ни одной брони, ёмкость — номерной фонд отеля. */
+    public boolean isAvailable(String hotelId, Integer totalRooms, String roomType,
+                               LocalDate checkIn, LocalDate checkOut, int rooms) {
+        RoomCalendar calendar = calendars.get(key(hotelId, roomType));
+        if (calendar == null) {
+            return rooms <= capacityOf(totalRooms);
+        }
+        return calendar.isAvailable(checkIn.toEpochDay(), checkOut.toEpochDay(), rooms);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(Hotel hotel, String roomType, LocalDate checkIn, LocalDate checkOut, int rooms) {
+        int capacity = capacityOf(hotel);
+        long nights = ChronoUnit.DAYS.between(checkIn, checkOut);
+
+        roomNightRepository.ensureNights(hotel.getHotelId(), roomType, checkIn, checkOut, capacity);
+        int updated = roomNightRepository.reserve(hotel.getHotelId(), roomType, checkIn, checkOut, rooms);
+
+        if (updated != nights) {
+            log.warn("Нет свободных номеров: hotel={}, {} → {}, rooms={}, свободно ночей {}/{}",
+                    hotel.getHotelId(), checkIn, checkOut, rooms, updated, nights);
+            throw new RoomsUnavailableException(hotel.getHotelId(), checkIn, checkOut);
+        }
+
+        afterCommit(() -> calendars
+                .computeIfAbsent(key(hotel.getHotelId(), roomType), k -> new RoomCalendar(baseDay, horizonDays, capacity))
+                .add(checkIn.toEpochDay(), checkOut.toEpochDay(), rooms));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Booking booking) {
+        if (booking.getRooms() == null || booking.getRoomType() == null
+                || booking.getCheckIn() == null || booking.getCheckOut() == null) {
+            return;
+        }
+
+        roomNightRepository.release(booking.getHotelId(), booking.getRoomType(),
+                booking.getCheckIn(), booking.getCheckOut(), booking.getRooms());
+
+        String key = key(booking.getHotelId(), booking.getRoomType());
+        long from = booking.getCheckIn().toEpochDay();
+        long to = booking.getCheckOut().toEpochDay();
+        int rooms = booking.getRooms();
+        afterCommit(() -> {
+            RoomCalendar calendar = calendars.get(key);
+            if (calendar != null) {
+                calendar.add(from, to, -rooms);
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${hotel.inventory.resync-interval-ms:60000}",
+            fixedDelayString = "${hotel.inventory.resync-interval-ms:60000}")
+    public void reload() {
+        LocalDate today = LocalDate.now();
+        long base = today.toEpochDay();
+        List<RoomNight> nights = roomNightRepository.findAllFrom(today);
+
+        Map<String, RoomCalendar> fresh = new ConcurrentHashMap<>();
+        for (RoomNight night : nights) {
+            fresh.computeIfAbsent(key(night.getId().getHotelId(), night.getId().getRoomType()),
+                            k -> new RoomCalendar(base, horizonDays, night.getCapacity()))
+                    .set(night.getId().getStayDate().toEpochDay(), night.getReserved());
+        }
+
+        baseDay = base;
+        calendars = fresh;
+        log.debug("Календари номеров перезагружены: {} календарей, {} ночей", fresh.size(), nights.size());
+    }
+
+    private static String key(String hotelId, String roomType) {
+        return hotelId + '|' + roomType;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
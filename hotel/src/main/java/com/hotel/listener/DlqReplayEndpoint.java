@@ -0,0 +1,76 @@
+package com.hotel.listener;
+
+import com.hotel.config.RabbitMQConfig;
+import com.hotel.events.amqp.retry.DlqReplayer;
+import com.hotel.events.amqp.retry.RetryPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * POST /actuator/dlqreplay/{queue}?limit=&ratePerSecond= — фоновая переотправка dlq-booking-created
+ * или parking lot результатов оркестрации с ограничением скорости, GET — её состояние.
+ * Для DLQ очередь назначения берётся из x-first-death-queue, которую проставляет брокер.
+ * Actuator слушает отдельный management.server.port, закрытый от внешнего трафика gateway.
+ */
+@Component
+@Endpoint(id = "dlqreplay")
+public class DlqReplayEndpoint {
+
+    private static final Logger log = LoggerFactory.getLogger(DlqReplayEndpoint.class);
+
+    private final DlqReplayer replayer;
+    private final Map<String, String> sources = new HashMap<>();
+    private final int defaultLimit;
+    private final double defaultRate;
+    private final int maxLimit;
+
+    public DlqReplayEndpoint(DlqReplayer replayer,
+                             RetryPolicy orchestrationRetryPolicy,
+                             @Value("${hotel.dlq-replay.limit:1000}") int defaultLimit,
+                             @Value("${hotel.dlq-replay.rate-per-second:20}") double defaultRate,
+                             @Value("${hotel.dlq-replay.max-limit:10000}") int maxLimit) {
+        this.replayer = replayer;
+        // null — назначение только по заголовкам сообщения
+        this.sources.put(RabbitMQConfig.DLQ_BOOKING_CREATED, null);
+        this.sources.put(orchestrationRetryPolicy.parkingLot(), RabbitMQConfig.ORCHESTRATION_QUEUE);
+        this.defaultLimit = defaultLimit;
+        this.defaultRate = defaultRate;
+        this.maxLimit = maxLimit;
+    }
+
+    @WriteOperation
+    public DlqReplayer.Job replay(@Selector String queue, @Nullable Integer limit, @Nullable Double ratePerSecond) {
+        if (!sources.containsKey(queue)) {
+            throw new InvalidEndpointRequestException("Переотправка разрешена только из " + sources.keySet(),
+                    "Unsupported queue");
+        }
+        if (limit != null && limit > maxLimit) {
+            throw new InvalidEndpointRequestException("limit не может превышать " + maxLimit, "Limit too large");
+        }
+        int max = limit != null && limit > 0 ? limit : defaultLimit;
+        double rate = ratePerSecond != null && ratePerSecond > 0 ? ratePerSecond : defaultRate;
+
+        log.info("Переотправка из {}: до {} сообщений, {}/с", queue, max, rate);
+        try {
+            return replayer.start(queue, sources.get(queue), max, rate);
+        } catch (IllegalStateException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), "Replay already running");
+        }
+    }
+
+    @ReadOperation
+    public DlqReplayer.Job status(@Selector String queue) {
+        return replayer.status(queue);
+    }
+}
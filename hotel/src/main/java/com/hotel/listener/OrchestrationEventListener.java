@@ -1,81 +1,199 @@
 package com.hotel.listener;
 
+import com.hotel.config.RabbitMQConfig;
 import com.hotel.events.BookingProcessedEvent;
-import com.hotel.entity.Booking;
-import com.hotel.repo.BookingRepository;
+import com.hotel.events.amqp.EventMessageConverter;
+import com.hotel.events.amqp.retry.RetryPolicy;
+import com.hotel.events.metrics.PipelineLag;
+import com.hotel.service.BookingStatusUpdater;
+import com.hotel.service.BookingStatusWaiters;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.*;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Optional;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Получает результаты оркестрации пачками (batch-size сообщений или batch-receive-timeout-ms)
+ * и применяет их одной транзакцией. Если пачка не проходит целиком, события применяются
+ * по одному, чтобы сбойное сообщение не откатывало остальные; не применённое событие
+ * уходит в очередь задержки (RetryPolicy), а не возвращается в очередь немедленно.
+ * После коммита завершаются long-poll ожидания клиентов по этим бронированиям.
+ */
 @Component
 public class OrchestrationEventListener {
 
     private static final Logger log = LoggerFactory.getLogger(OrchestrationEventListener.class);
-    private final BookingRepository bookingRepository;
+    private final BookingStatusUpdater statusUpdater;
+    private final BookingStatusWaiters statusWaiters;
+    private final TransactionTemplate transactionTemplate;
+    private final EventMessageConverter messageConverter;
+    private final PipelineLag persistedLag;
+    private final RetryPolicy retryPolicy;
+    private final RabbitTemplate rabbitTemplate;
+    private final long confirmTimeoutMs;
+    private final Counter retryScheduled;
+    private final Counter retryParked;
 
-    public OrchestrationEventListener(BookingRepository bookingRepository) {
-        this.bookingRepository = bookingRepository;
+    public OrchestrationEventListener(BookingStatusUpdater statusUpdater,
+                                      BookingStatusWaiters statusWaiters,
+                                      TransactionTemplate transactionTemplate,
+                                      EventMessageConverter messageConverter,
+                                      MeterRegistry meterRegistry,
+                                      RetryPolicy orchestrationRetryPolicy,
+                                      RabbitTemplate rabbitTemplate,
+                                      @Value("${hotel.orchestration.retry.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        this.statusUpdater = statusUpdater;
+        this.statusWaiters = statusWaiters;
+        this.transactionTemplate = transactionTemplate;
+        this.messageConverter = messageConverter;
+        this.persistedLag = new PipelineLag(meterRegistry, "persisted");
+        this.retryPolicy = orchestrationRetryPolicy;
+        this.rabbitTemplate = rabbitTemplate;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.retryScheduled = meterRegistry.counter("hotel.orchestration.retry", "outcome", "scheduled");
+        this.retryParked = meterRegistry.counter("hotel.orchestration.retry", "outcome", "parked");
     }
 
     @RabbitListener(
             bindings = @QueueBinding(
-                    value = @Queue(name = "q.hotel.orchestration", durable = "true",
+                    value = @Queue(name = RabbitMQConfig.ORCHESTRATION_QUEUE, durable = "true",
                             arguments = @Argument(name = "x-message-ttl", value = "300000", type = "java.lang.Integer")),
                     exchange = @Exchange(name = "booking-orchestration-fanout", type = "fanout")
-            )
+            ),
+            containerFactory = "orchestrationBatchContainerFactory"
     )
-    @Transactional
-    public void handleBookingProcessed(BookingProcessedEvent event) {
-        log.info("HOTEL SERVICE: Обработка результата оркестрации для booking_id: {}",
-                event.bookingId());
-        if (event.bookingId() == null || event.bookingId().isEmpty()) {
-            log.error("Пустой bookingId в событии, пропускаем");
+    public void handleBookingProcessed(List<Message> messages, Channel channel) throws IOException {
+        log.info("HOTEL SERVICE: Обработка пачки результатов оркестрации: {} сообщений", messages.size());
+
+        Map<String, BookingProcessedEvent> latest = new LinkedHashMap<>();
+        Map<String, List<Message>> delivered = new HashMap<>();
+
+        for (Message message : messages) {
+            long tag = message.getMessageProperties().getDeliveryTag();
+            BookingProcessedEvent event = parse(message);
+            if (event == null) {
+                channel.basicNack(tag, false, false);
+                continue;
+            }
+            if (event.bookingId() == null || event.bookingId().isEmpty()) {
+                log.error("Пустой bookingId в событии, пропускаем");
+                channel.basicAck(tag, false);
+                continue;
+            }
+            latest.put(event.bookingId(), event);
+            delivered.computeIfAbsent(event.bookingId(), k -> new ArrayList<>()).add(message);
+        }
+
+        if (latest.isEmpty()) {
             return;
         }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> statusUpdater.apply(new ArrayList<>(latest.values())));
+            for (List<Message> bookingMessages : delivered.values()) {
+                ack(channel, bookingMessages);
+            }
+            latest.values().forEach(this::recordPersisted);
+            statusWaiters.statusChanged(latest.keySet());
+        } catch (Exception e) {
+            log.warn("Пачка из {} событий не применена, обрабатываем по одному: {}", latest.size(), e.getMessage());
+            for (BookingProcessedEvent event : latest.values()) {
+                applySingle(event, channel, delivered.get(event.bookingId()));
+            }
+        }
+    }
+
+    private void applySingle(BookingProcessedEvent event, Channel channel, List<Message> messages) throws IOException {
         try {
-            Optional<Booking> bookingOpt = bookingRepository.findById(event.bookingId());
+            transactionTemplate.executeWithoutResult(status -> statusUpdater.apply(List.of(event)));
+            ack(channel, messages);
+            recordPersisted(event);
+            statusWaiters.statusChanged(List.of(event.bookingId()));
+        } catch (Exception e) {
+            log.error("Ошибка при обновлении статуса бронирования {}", event.bookingId(), e);
+            retry(event.bookingId(), channel, messages, e);
+        }
+    }
 
-            if (bookingOpt.isEmpty()) {
-                log.warn("Бронирование {} не найдено в БД.", event.bookingId());
-                return;
+    /**
+     * Повтор через очередь задержки вместо немедленного requeue. Откладывается последнее сообщение
+     * бронирования (оно и применялось), более ранние им перекрыты; все подтверждаются только после
+     * confirm копии, иначе возвращаются в очередь как раньше.
+     */
+    private void retry(String bookingId, Channel channel, List<Message> messages, Exception error) throws IOException {
+        RetryPolicy.Route route = retryPolicy.next(messages.get(messages.size() - 1), error);
+        String publishError = publish(route);
+        if (publishError != null) {
+            log.error("Не удалось отложить повтор для {}: {}", bookingId, publishError);
+            for (Message message : messages) {
+                channel.basicNack(message.getMessageProperties().getDeliveryTag(), false, true);
             }
+            return;
+        }
+        if (route.parked()) {
+            retryParked.increment();
+            log.error("Событие бронирования {} отправлено в {} после {} попыток", bookingId, route.queue(), route.attempt() - 1);
+        } else {
+            retryScheduled.increment();
+            log.warn("Повтор {} для бронирования {} через {}", route.attempt(), bookingId, route.queue());
+        }
+        ack(channel, messages);
+    }
 
-            Booking booking = bookingOpt.get();
-            String oldStatus = booking.getStatus();
-
-            if ("CONFIRMED".equals(event.status())) {
-                booking.setStatus("CONFIRMED");
-                booking.setFinalPrice(event.finalPrice());
-                booking.setDiscount(event.discountPercentage());
-                booking.setUserId(event.userId());
-
-                if (event.recommendations() != null && !event.recommendations().isEmpty()) {
-                    try {
-                        booking.setRecommendations(new com.fasterxml.jackson.databind.ObjectMapper()
-                                .writeValueAsString(event.recommendations()));
-                    } catch (Exception e) {
-                        log.warn("Ошибка сериализации recommendations", e);
-                    }
-                }
-
-                log.info("Статус: {} → CONFIRMED, цена: {}, скидка: {}%",
-                        oldStatus, event.finalPrice(), event.discountPercentage());
-            } else if ("REJECTED".equals(event.status())) {
-                booking.setStatus("REJECTED");
-                booking.setRejectionReason(event.rejectionReason());
-                log.info("Статус: {} → REJECTED, причина: {}", oldStatus, event.rejectionReason());
+    private String publish(RetryPolicy.Route route) {
+        CorrelationData correlation = new CorrelationData();
+        try {
+            rabbitTemplate.send("", route.queue(), route.message(), correlation);
+            CorrelationData.Confirm confirm = correlation.getFuture().get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+            if (!confirm.isAck()) {
+                return "nack: " + confirm.getReason();
             }
+            return correlation.getReturned() != null ? "returned: " + correlation.getReturned().getReplyText() : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        } catch (AmqpException | ExecutionException | TimeoutException e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+
+    private BookingProcessedEvent parse(Message message) {
+        try {
+            // JSON или protobuf — по content-type сообщения
+            return messageConverter.fromMessage(message, BookingProcessedEvent.class);
+        } catch (MessageConversionException e) {
+            log.error("Не удалось разобрать BookingProcessedEvent, сообщение отброшено: {}", e.getMessage());
+            return null;
+        }
+    }
 
-            bookingRepository.save(booking);
-            log.info("Бронирование {} успешно обновлено в БД", event.bookingId());
+    private void recordPersisted(BookingProcessedEvent event) {
+        persistedLag.record(event.bookingCreatedAt(), event.timestamp());
+    }
 
-        } catch (Exception e) {
-            log.error("Ошибка при обновлении статуса бронирования {}", event.bookingId(), e);
-            throw new RuntimeException("Retry this message", e);
+    private static void ack(Channel channel, List<Message> messages) throws IOException {
+        for (Message message : messages) {
+            channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
         }
     }
 }
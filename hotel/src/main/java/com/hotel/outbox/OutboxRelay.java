@@ -0,0 +1,185 @@
+package com.hotel.outbox;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.entity.OutboxEvent;
+import com.hotel.repo.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Фоновая публикация событий из outbox в RabbitMQ.
+ * Пачка забирается через FOR UPDATE SKIP LOCKED (несколько экземпляров gateway не мешают друг другу),
+ * отправляется целиком, затем publisher confirms всей пачки ожидаются с одним общим таймаутом;
+ * подтверждённые строки удаляются в той же транзакции. В пачку попадает не больше одного события
+ * на бронирование, так что порядок событий одного бронирования сохраняется.
+ * <p>
+ * Неподтверждённое событие откладывается с экспоненциальным backoff по attempts, после
+ * max-attempts — в parking lot (parked_at), чтобы не блокировать остальные события бронирования.
+ * Следующая пачка забирается сразу, только если вся предыдущая подтверждена, — во время
+ * недоступности брокера relay ждёт poll-interval, а не крутится вхолостую.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+    private static final TypeReference<Map<String, Object>> HEADERS_TYPE = new TypeReference<>() {};
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final long confirmTimeoutMs;
+    private final long backoffInitialMs;
+    private final long backoffMaxMs;
+    private final int maxAttempts;
+    private final Counter published;
+    private final Counter failed;
+    private final Counter parked;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       RabbitTemplate rabbitTemplate,
+                       TransactionTemplate transactionTemplate,
+                       ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry,
+                       @Value("${hotel.outbox.batch-size:100}") int batchSize,
+                       @Value("${hotel.outbox.confirm-timeout-ms:5000}") long confirmTimeoutMs,
+                       @Value("${hotel.outbox.backoff-initial-ms:1000}") long backoffInitialMs,
+                       @Value("${hotel.outbox.backoff-max-ms:60000}") long backoffMaxMs,
+                       @Value("${hotel.outbox.max-attempts:10}") int maxAttempts) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.backoffInitialMs = backoffInitialMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.maxAttempts = maxAttempts;
+        this.published = meterRegistry.counter("hotel.outbox.published");
+        this.failed = meterRegistry.counter("hotel.outbox.failed");
+        this.parked = meterRegistry.counter("hotel.outbox.parked");
+    }
+
+    @Scheduled(fixedDelayString = "${hotel.outbox.poll-interval-ms:200}")
+    public void relay() {
+        Integer confirmed;
+        do {
+            confirmed = transactionTemplate.execute(status -> publishBatch());
+        } while (confirmed != null && confirmed == batchSize);
+    }
+
+    private int publishBatch() {
+        List<OutboxEvent> batch = outboxEventRepository.claimBatch(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<OutboxEvent> sent = new ArrayList<>(batch.size());
+        List<CorrelationData> confirms = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            CorrelationData correlation = new CorrelationData(String.valueOf(event.getId()));
+            try {
+                rabbitTemplate.send(event.getExchange(), event.getRoutingKey(), toMessage(event), correlation);
+            } catch (AmqpException e) {
+                // брокер недоступен — остаток пачки не трогаем, он будет забран в следующий раз
+                log.warn("Не удалось отправить событие outbox {}: {}", event.getId(), e.getMessage());
+                markFailed(event, e.getMessage());
+                break;
+            }
+            sent.add(event);
+            confirms.add(correlation);
+        }
+
+        List<Long> confirmed = new ArrayList<>(sent.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        for (int i = 0; i < sent.size(); i++) {
+            OutboxEvent event = sent.get(i);
+            String error = awaitConfirm(confirms.get(i), deadline);
+            if (error == null) {
+                confirmed.add(event.getId());
+            } else {
+                markFailed(event, error);
+            }
+        }
+
+        if (!confirmed.isEmpty()) {
+            outboxEventRepository.deleteAllByIdInBatch(confirmed);
+            published.increment(confirmed.size());
+        }
+        log.debug("Outbox: отправлено {}, подтверждено {} из {}", sent.size(), confirmed.size(), batch.size());
+        return confirmed.size();
+    }
+
+    /** deadline — общий для всей пачки (System.nanoTime()), уже пришедшие confirms забираются без ожидания. */
+    private String awaitConfirm(CorrelationData correlation, long deadline) {
+        try {
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            CorrelationData.Confirm confirm = correlation.getFuture().get(remaining, TimeUnit.NANOSECONDS);
+            if (!confirm.isAck()) {
+                return "nack: " + confirm.getReason();
+            }
+            if (correlation.getReturned() != null) {
+                return "returned: " + correlation.getReturned().getReplyText();
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        } catch (ExecutionException | TimeoutException e) {
+            return "confirm не получен: " + e.getClass().getSimpleName();
+        }
+    }
+
+    private void markFailed(OutboxEvent event, String error) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        event.setLastError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+        failed.increment();
+
+        if (attempts >= maxAttempts) {
+            event.setParkedAt(Instant.now());
+            parked.increment();
+            log.error("Событие outbox {} (aggregate {}) отложено в parking lot после {} попыток: {}",
+                    event.getId(), event.getAggregateId(), attempts, error);
+            return;
+        }
+        long delay = backoffInitialMs << Math.min(attempts - 1, 30);
+        event.setNextAttemptAt(Instant.now().plusMillis(delay > 0 ? Math.min(delay, backoffMaxMs) : backoffMaxMs));
+    }
+
+    private Message toMessage(OutboxEvent event) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(event.getContentType());
+        properties.setContentEncoding(event.getContentEncoding());
+        properties.setMessageId("outbox-" + event.getId());
+        if (event.getHeaders() != null) {
+            try {
+                objectMapper.readValue(event.getHeaders(), HEADERS_TYPE).forEach(properties::setHeader);
+            } catch (Exception e) {
+                log.warn("Повреждённые заголовки в событии outbox {}: {}", event.getId(), e.getMessage());
+            }
+        }
+        return new Message(event.getPayload(), properties);
+    }
+}
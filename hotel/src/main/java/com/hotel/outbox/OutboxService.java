@@ -0,0 +1,78 @@
+package com.hotel.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.entity.OutboxEvent;
+import com.hotel.repo.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Запись событий в outbox в той же транзакции, что и изменение бронирования.
+ * Сообщение сериализуется сразу тем же MessageConverter, что и у RabbitTemplate,
+ * поэтому relay отправляет готовые байты без знания о типах событий.
+ */
+@Service
+public class OutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxService.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final MessageConverter messageConverter;
+    private final ObjectMapper objectMapper;
+
+    public OutboxService(OutboxEventRepository outboxEventRepository,
+                         MessageConverter messageConverter,
+                         ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.messageConverter = messageConverter;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String aggregateId, String exchange, String routingKey, Object event) {
+        enqueue(aggregateId, exchange, routingKey, event, Map.of());
+    }
+
+    /** headers уходят в AMQP-заголовки сообщения вместе с заголовками конвертера. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String aggregateId, String exchange, String routingKey, Object event, Map<String, ?> headers) {
+        MessageProperties initial = new MessageProperties();
+        headers.forEach(initial::setHeader);
+        Message message = messageConverter.toMessage(event, initial);
+        MessageProperties properties = message.getMessageProperties();
+
+        OutboxEvent outboxEvent = new OutboxEvent();
+        outboxEvent.setAggregateId(aggregateId);
+        outboxEvent.setExchange(exchange);
+        outboxEvent.setRoutingKey(routingKey);
+        outboxEvent.setContentType(properties.getContentType());
+        outboxEvent.setContentEncoding(properties.getContentEncoding());
+        outboxEvent.setHeaders(writeHeaders(properties));
+        outboxEvent.setPayload(message.getBody());
+        outboxEvent.setCreatedAt(Instant.now());
+
+        outboxEventRepository.save(outboxEvent);
+        log.debug("Событие {} для {} записано в outbox", routingKey, aggregateId);
+    }
+
+    private String writeHeaders(MessageProperties properties) {
+        if (properties.getHeaders().isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(properties.getHeaders());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать заголовки сообщения", e);
+        }
+    }
+}
@@ -1,7 +1,36 @@
 package com.hotel.repo;
 
 import com.hotel.entity.Booking;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface BookingRepository extends JpaRepository<Booking, String> {
-}
\ No newline at end of file
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface BookingRepository extends JpaRepository<Booking, UUID> {
+
+    List<Booking> findAllByOrderByBookingIdAsc(Limit limit);
+
+    List<Booking> findByBookingIdGreaterThanOrderByBookingIdAsc(UUID bookingId, Limit limit);
+
+    /**
+     * Оценка числа строк по статистике планировщика, без полного COUNT(*).
+     * Возвращает -1, если таблица ещё ни разу не анализировалась.
+     */
+    @Query(value = "SELECT CAST(reltuples AS BIGINT) FROM pg_class WHERE relname = 'bookings'", nativeQuery = true)
+    Long estimateCount();
+
+    /**
+     * Условный переход статуса: меняет строку, только если её текущий статус входит в fromStatuses.
+     * Из двух параллельных переходов из одного статуса строку меняет ровно один.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = :status WHERE b.bookingId = :bookingId AND b.status IN :fromStatuses")
+    int updateStatus(@Param("bookingId") UUID bookingId,
+                     @Param("status") String status,
+                     @Param("fromStatuses") Collection<String> fromStatuses);
+}
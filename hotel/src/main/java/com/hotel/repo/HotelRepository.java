@@ -1,18 +1,24 @@
 package com.hotel.repo;
 
 import com.hotel.entity.Hotel;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface HotelRepository extends JpaRepository<Hotel, String> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Hotel> findByCityAndAvailableTrue(String city);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     @Query("SELECT DISTINCT h.city FROM Hotel h WHERE h.available = true ORDER BY h.city")
     List<String> findAllDistinctCities();
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     @Query("SELECT DISTINCT h.city FROM Hotel h WHERE h.available = true AND LOWER(h.city) LIKE LOWER(CONCAT(:query, '%')) ORDER BY h.city")
     List<String> findCitiesByPrefix(@Param("query") String query);
 }
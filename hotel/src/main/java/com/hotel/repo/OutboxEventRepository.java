@@ -0,0 +1,26 @@
+package com.hotel.repo;
+
+import com.hotel.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Забирает пачку событий, которые можно публиковать прямо сейчас: только самое раннее событие
+     * каждого агрегата (порядок внутри бронирования сохраняется), строки, занятые другими
+     * экземплярами gateway, пропускаются. События в backoff ждут next_attempt_at и держат
+     * более поздние события своего бронирования; отложенные в parking lot (parked_at) не
+     * публикуются и больше никого не блокируют.
+     */
+    @Query(value = "SELECT o.* FROM outbox_events o " +
+            "WHERE o.parked_at IS NULL " +
+            "AND (o.next_attempt_at IS NULL OR o.next_attempt_at <= now()) " +
+            "AND NOT EXISTS (SELECT 1 FROM outbox_events p " +
+            "WHERE p.aggregate_id = o.aggregate_id AND p.id < o.id AND p.parked_at IS NULL) " +
+            "ORDER BY o.id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEvent> claimBatch(@Param("limit") int limit);
+}
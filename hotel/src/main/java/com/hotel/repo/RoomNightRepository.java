@@ -0,0 +1,49 @@
+package com.hotel.repo;
+
+import com.hotel.entity.RoomNight;
+import com.hotel.entity.RoomNightId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface RoomNightRepository extends JpaRepository<RoomNight, RoomNightId> {
+
+    @Query("SELECT r FROM RoomNight r WHERE r.id.stayDate >= :from")
+    List<RoomNight> findAllFrom(@Param("from") LocalDate from);
+
+    @Modifying
+    @Query(value = "INSERT INTO room_nights (hotel_id, room_type, stay_date, capacity, reserved) " +
+            "SELECT :hotelId, :roomType, CAST(d AS date), :capacity, 0 " +
+            "FROM generate_series(CAST(:checkIn AS date), CAST(:checkOut AS date) - 1, INTERVAL '1 day') AS d " +
+            "ON CONFLICT (hotel_id, room_type, stay_date) DO NOTHING", nativeQuery = true)
+    int ensureNights(@Param("hotelId") String hotelId,
+                     @Param("roomType") String roomType,
+                     @Param("checkIn") LocalDate checkIn,
+                     @Param("checkOut") LocalDate checkOut,
+                     @Param("capacity") int capacity);
+
+    @Modifying
+    @Query(value = "UPDATE room_nights SET reserved = reserved + :rooms " +
+            "WHERE hotel_id = :hotelId AND room_type = :roomType " +
+            "AND stay_date >= :checkIn AND stay_date < :checkOut " +
+            "AND reserved + :rooms <= capacity", nativeQuery = true)
+    int reserve(@Param("hotelId") String hotelId,
+                @Param("roomType") String roomType,
+                @Param("checkIn") LocalDate checkIn,
+                @Param("checkOut") LocalDate checkOut,
+                @Param("rooms") int rooms);
+
+    @Modifying
+    @Query(value = "UPDATE room_nights SET reserved = GREATEST(reserved - :rooms, 0) " +
+            "WHERE hotel_id = :hotelId AND room_type = :roomType " +
+            "AND stay_date >= :checkIn AND stay_date < :checkOut", nativeQuery = true)
+    int release(@Param("hotelId") String hotelId,
+                @Param("roomType") String roomType,
+                @Param("checkIn") LocalDate checkIn,
+                @Param("checkOut") LocalDate checkOut,
+                @Param("rooms") int rooms);
+}
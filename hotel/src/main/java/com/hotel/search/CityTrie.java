@@ -0,0 +1,144 @@
+package com.hotel.search;
+
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Неизменяемое префиксное дерево городов для autocomplete.
+ * Ключи нормализуются: нижний регистр, без диакритики, кириллица транслитерируется в латиницу,
+ * поэтому "Моск" и "mosk" попадают в один узел. В каждом узле заранее посчитан top-k городов
+ * по количеству отелей.
+ */
+public final class CityTrie {
+
+    private static final Map<Character, String> CYRILLIC = Map.ofEntries(
+            Map.entry('а', "a"), Map.entry('б', "b"), Map.entry('в', "v"), Map.entry('г', "g"),
+            Map.entry('д', "d"), Map.entry('е', "e"), Map.entry('ё', "e"), Map.entry('ж', "zh"),
+            Map.entry('з', "z"), Map.entry('и', "i"), Map.entry('й', "y"), Map.entry('к', "k"),
+            Map.entry('л', "l"), Map.entry('м', "m"), Map.entry('н', "n"), Map.entry('о', "o"),
+            Map.entry('п', "p"), Map.entry('р', "r"), Map.entry('с', "s"), Map.entry('т', "t"),
+            Map.entry('у', "u"), Map.entry('ф', "f"), Map.entry('х', "kh"), Map.entry('ц', "ts"),
+            Map.entry('ч', "ch"), Map.entry('ш', "sh"), Map.entry('щ', "shch"), Map.entry('ъ', ""),
+            Map.entry('ы', "y"), Map.entry('ь', ""), Map.entry('э', "e"), Map.entry('ю', "yu"),
+            Map.entry('я', "ya")
+    );
+
+    private static final CityTrie EMPTY = new CityTrie(new Node(new char[0], new Node[0], new String[0]), List.of());
+
+    private final Node root;
+    private final List<String> allCities;
+
+    private CityTrie(Node root, List<String> allCities) {
+        this.root = root;
+        this.allCities = allCities;
+    }
+
+    public static CityTrie empty() {
+        return EMPTY;
+    }
+
+    public static CityTrie build(Map<String, Integer> hotelCountByCity, int topK) {
+        Builder root = new Builder();
+        for (Map.Entry<String, Integer> entry : hotelCountByCity.entrySet()) {
+            String key = normalize(entry.getKey());
+            Builder node = root;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), c -> new Builder());
+            }
+            node.cities.add(new Ranked(entry.getKey(), entry.getValue()));
+        }
+
+        List<String> all = new ArrayList<>(hotelCountByCity.keySet());
+        Collections.sort(all);
+        return new CityTrie(root.freeze(topK), List.copyOf(all));
+    }
+
+    public List<String> complete(String prefix) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return allCities;
+        }
+
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        return node == null ? List.of() : Collections.unmodifiableList(Arrays.asList(node.top));
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+
+        String lower = value.trim().toLowerCase(Locale.ROOT);
+        StringBuilder transliterated = new StringBuilder(lower.length() + 8);
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            String latin = CYRILLIC.get(c);
+            if (latin != null) {
+                transliterated.append(latin);
+            } else if (c == '-' || c == '_' || Character.isWhitespace(c)) {
+                transliterated.append(' ');
+            } else {
+                transliterated.append(c);
+            }
+        }
+
+        String decomposed = Normalizer.normalize(transliterated, Normalizer.Form.NFD);
+        StringBuilder result = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (c == ' ' && (result.isEmpty() || result.charAt(result.length() - 1) == ' ')) {
+                continue;
+            }
+            result.append(c);
+        }
+        return result.toString().stripTrailing();
+    }
+
+    private record Ranked(String city, int hotels) {
+        static final Comparator<Ranked> ORDER = Comparator.comparingInt(Ranked::hotels).reversed()
+                .thenComparing(Ranked::city);
+    }
+
+    private static final class Builder {
+        final TreeMap<Character, Builder> children = new TreeMap<>();
+        final List<Ranked> cities = new ArrayList<>(1);
+        List<Ranked> top = List.of();
+
+        Node freeze(int topK) {
+            char[] keys = new char[children.size()];
+            Node[] nodes = new Node[children.size()];
+            List<Ranked> candidates = new ArrayList<>(cities);
+
+            int i = 0;
+            for (Map.Entry<Character, Builder> entry : children.entrySet()) {
+                Builder child = entry.getValue();
+                keys[i] = entry.getKey();
+                nodes[i] = child.freeze(topK);
+                candidates.addAll(child.top);
+                i++;
+            }
+
+            candidates.sort(Ranked.ORDER);
+            top = candidates.size() > topK ? new ArrayList<>(candidates.subList(0, topK)) : candidates;
+
+            String[] names = new String[top.size()];
+            for (int j = 0; j < names.length; j++) {
+                names[j] = top.get(j).city();
+            }
+            return new Node(keys, nodes, names);
+        }
+    }
+
+    private record Node(char[] keys, Node[] children, String[] top) {
+        Node child(char c) {
+            int idx = Arrays.binarySearch(keys, c);
+            return idx >= 0 ? children[idx] : null;
+        }
+    }
+}
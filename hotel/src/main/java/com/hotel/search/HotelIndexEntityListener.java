@@ -0,0 +1,61 @@
+package com.hotel.search;
+
+import com.hotel.cache.HotelChangedEvent;
+import com.hotel.entity.Hotel;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Применяет изменения строк Hotel к индексу поиска после коммита транзакции
+ * и публикует HotelChangedEvent для инвалидации кэшей на других экземплярах.
+ */
+@Component
+public class HotelIndexEntityListener {
+
+    private final HotelSearchIndex index;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public HotelIndexEntityListener(HotelSearchIndex index, ApplicationEventPublisher eventPublisher) {
+        this.index = index;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSaved(Hotel hotel) {
+        Hotel snapshot = new Hotel(hotel.getHotelId(), hotel.getName(), hotel.getCity(),
+                hotel.getAddress(), hotel.getPricePerNight(), hotel.getAvailable());
+        snapshot.setTotalRooms(hotel.getTotalRooms());
+        afterCommit(() -> {
+            index.upsert(snapshot);
+            eventPublisher.publishEvent(new HotelChangedEvent(snapshot.getHotelId()));
+        });
+    }
+
+    @PostRemove
+    public void onRemoved(Hotel hotel) {
+        String hotelId = hotel.getHotelId();
+        afterCommit(() -> {
+            index.remove(hotelId);
+            eventPublisher.publishEvent(new HotelChangedEvent(hotelId));
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.hotel.search;
+
+import com.hotel.api.dto.HotelSearchResponse;
+import com.hotel.entity.Hotel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * In-memory индекс каталога отелей: city → готовые массивы HotelSearchResponse, hotelId → отель,
+ * hotelId → число номеров (для фильтра доступности) и префиксное дерево городов для autocomplete.
+ * Снимок неизменяемый, читатели работают без блокировок, запись пересобирает только затронутые города.
+ */
+@Component
+public class HotelSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(HotelSearchIndex.class);
+    private static final HotelSearchResponse[] EMPTY = new HotelSearchResponse[0];
+
+    private final int citiesTopK;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile boolean ready = false;
+
+    public HotelSearchIndex(@Value("${hotel.search.cities.top-k:10}") int citiesTopK) {
+        this.citiesTopK = citiesTopK;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<HotelSearchResponse> findByCity(String city) {
+        if (city == null) {
+            return List.of();
+        }
+        HotelSearchResponse[] hotels = snapshot.byCity().getOrDefault(city, EMPTY);
+        return Collections.unmodifiableList(Arrays.asList(hotels));
+    }
+
+    public Optional<HotelSearchResponse> findById(String hotelId) {
+        return Optional.ofNullable(snapshot.byId().get(hotelId));
+    }
+
+    /** totalRooms отеля или null, если он не задан или отеля нет в индексе. */
+    public Integer totalRooms(String hotelId) {
+        return snapshot.totalRooms().get(hotelId);
+    }
+
+    public List<String> completeCity(String prefix) {
+        return snapshot.cities().complete(prefix);
+    }
+
+    public synchronized void rebuild(Collection<Hotel> hotels) {
+        Map<String, HotelSearchResponse> byId = new HashMap<>(hotels.size() * 2);
+        Map<String, Integer> totalRooms = new HashMap<>(hotels.size() * 2);
+        for (Hotel hotel : hotels) {
+            byId.put(hotel.getHotelId(), toResponse(hotel));
+            if (hotel.getTotalRooms() != null) {
+                totalRooms.put(hotel.getHotelId(), hotel.getTotalRooms());
+            }
+        }
+
+        Map<String, List<HotelSearchResponse>> grouped = new HashMap<>();
+        for (HotelSearchResponse hotel : byId.values()) {
+            if (Boolean.TRUE.equals(hotel.available())) {
+                grouped.computeIfAbsent(hotel.city(), k -> new ArrayList<>()).add(hotel);
+            }
+        }
+
+        Map<String, HotelSearchResponse[]> byCity = new HashMap<>(grouped.size() * 2);
+        grouped.forEach((city, list) -> byCity.put(city, sorted(list)));
+
+        snapshot = newSnapshot(byCity, byId, totalRooms);
+        ready = true;
+
+        log.info("Индекс поиска отелей построен: {} отелей, {} городов", byId.size(), byCity.size());
+    }
+
+    public synchronized void upsert(Hotel hotel) {
+        HotelSearchResponse updated = toResponse(hotel);
+        Snapshot current = snapshot;
+
+        Map<String, HotelSearchResponse> byId = new HashMap<>(current.byId());
+        HotelSearchResponse previous = byId.put(updated.hotelId(), updated);
+
+        Map<String, Integer> totalRooms = new HashMap<>(current.totalRooms());
+        if (hotel.getTotalRooms() != null) {
+            totalRooms.put(updated.hotelId(), hotel.getTotalRooms());
+        } else {
+            totalRooms.remove(updated.hotelId());
+        }
+
+        Map<String, HotelSearchResponse[]> byCity = new HashMap<>(current.byCity());
+        if (previous != null && previous.city() != null) {
+            rebuildCity(byCity, byId, previous.city());
+        }
+        if (updated.city() != null) {
+            rebuildCity(byCity, byId, updated.city());
+        }
+
+        snapshot = newSnapshot(byCity, byId, totalRooms);
+        log.debug("Индекс поиска обновлён для отеля {}", updated.hotelId());
+    }
+
+    public synchronized void remove(String hotelId) {
+        Snapshot current = snapshot;
+        if (!current.byId().containsKey(hotelId)) {
+            return;
+        }
+
+        Map<String, HotelSearchResponse> byId = new HashMap<>(current.byId());
+        HotelSearchResponse previous = byId.remove(hotelId);
+        Map<String, Integer> totalRooms = new HashMap<>(current.totalRooms());
+        totalRooms.remove(hotelId);
+
+        Map<String, HotelSearchResponse[]> byCity = new HashMap<>(current.byCity());
+        if (previous.city() != null) {
+            rebuildCity(byCity, byId, previous.city());
+        }
+
+        snapshot = newSnapshot(byCity, byId, totalRooms);
+        log.debug("Отель {} удалён из индекса поиска", hotelId);
+    }
+
+    private Snapshot newSnapshot(Map<String, HotelSearchResponse[]> byCity,
+                                 Map<String, HotelSearchResponse> byId,
+                                 Map<String, Integer> totalRooms) {
+        Map<String, Integer> hotelsByCity = new HashMap<>(byCity.size() * 2);
+        byCity.forEach((city, hotels) -> hotelsByCity.put(city, hotels.length));
+        return new Snapshot(Map.copyOf(byCity), Map.copyOf(byId), Map.copyOf(totalRooms),
+                CityTrie.build(hotelsByCity, citiesTopK));
+    }
+
+    private void rebuildCity(Map<String, HotelSearchResponse[]> byCity,
+                             Map<String, HotelSearchResponse> byId,
+                             String city) {
+        List<HotelSearchResponse> hotels = new ArrayList<>();
+        for (HotelSearchResponse hotel : byId.values()) {
+            if (city.equals(hotel.city()) && Boolean.TRUE.equals(hotel.available())) {
+                hotels.add(hotel);
+            }
+        }
+        if (hotels.isEmpty()) {
+            byCity.remove(city);
+        } else {
+            byCity.put(city, sorted(hotels));
+        }
+    }
+
+    private static HotelSearchResponse[] sorted(List<HotelSearchResponse> hotels) {
+        HotelSearchResponse[] array = hotels.toArray(EMPTY);
+        Arrays.sort(array, Comparator.comparing(HotelSearchResponse::hotelId));
+        return array;
+    }
+
+    public static HotelSearchResponse toResponse(Hotel h) {
+        return new HotelSearchResponse(
+                h.getHotelId(),
+                h.getName(),
+                h.getCity(),
+                h.getAddress(),
+                h.getPricePerNight(),
+                h.getAvailable()
+        );
+    }
+
+    private record Snapshot(Map<String, HotelSearchResponse[]> byCity,
+                            Map<String, HotelSearchResponse> byId,
+                            Map<String, Integer> totalRooms,
+                            CityTrie cities) {
+        static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of(), Map.of(), CityTrie.empty());
+    }
+}
@@ -0,0 +1,23 @@
+package com.hotel.search;
+
+import com.hotel.repo.HotelRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Component
+public class HotelSearchIndexLoader {
+
+    private final HotelRepository hotelRepository;
+    private final HotelSearchIndex index;
+
+    public HotelSearchIndexLoader(HotelRepository hotelRepository, HotelSearchIndex index) {
+        this.hotelRepository = hotelRepository;
+        this.index = index;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        index.rebuild(hotelRepository.findAll());
+    }
+}
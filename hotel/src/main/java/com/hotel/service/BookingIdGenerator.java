@@ -0,0 +1,45 @@
+package com.hotel.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Генератор идентификаторов бронирований UUIDv7 (RFC 9562): 48 бит миллисекунд Unix-времени,
+ * 12 бит монотонного счётчика внутри миллисекунды, 62 случайных бита.
+ * Ключи растут во времени, поэтому вставки в индекс bookings идут в его конец.
+ * Случайная часть берётся из ThreadLocalRandom — без общей блокировки SecureRandom.
+ */
+@Component
+public class BookingIdGenerator {
+
+    private static final int COUNTER_BITS = 12;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+
+    /** (миллисекунды << 12) | счётчик последнего выданного идентификатора */
+    private final AtomicLong lastTimeAndCounter = new AtomicLong();
+
+    public UUID next() {
+        long timeAndCounter = nextTimeAndCounter();
+        long millis = timeAndCounter >>> COUNTER_BITS;
+        long counter = timeAndCounter & COUNTER_MASK;
+
+        long msb = (millis << 16) | (0x7L << 12) | counter;
+        long lsb = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    private long nextTimeAndCounter() {
+        while (true) {
+            long last = lastTimeAndCounter.get();
+            long candidate = System.currentTimeMillis() << COUNTER_BITS;
+            // часы не растут (та же миллисекунда или шаг назад) — продолжаем счётчик от последнего значения
+            long next = candidate > last ? candidate : last + 1;
+            if (lastTimeAndCounter.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.hotel.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.entity.Booking;
+import com.hotel.events.BookingProcessedEvent;
+import com.hotel.inventory.RoomInventory;
+import com.hotel.repo.BookingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Применение результатов оркестрации пачкой: один JDBC batch условного UPDATE на статус.
+ * Переход выполняется только из допустимого исходного статуса, поэтому повторная доставка
+ * или событие по уже отменённому бронированию ничего не меняют.
+ */
+@Component
+public class BookingStatusUpdater {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingStatusUpdater.class);
+
+    private static final String CONFIRM_SQL =
+            "UPDATE bookings SET status = 'CONFIRMED', final_price = ?, discount = ?, user_id = ?, " +
+            "recommendations = COALESCE(?, recommendations) " +
+            "WHERE booking_id = ? AND status = 'PENDING'";
+
+    private static final String REJECT_SQL =
+            "UPDATE bookings SET status = 'REJECTED', rejection_reason = ? " +
+            "WHERE booking_id = ? AND status IN ('PENDING', 'CONFIRMED')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BookingRepository bookingRepository;
+    private final RoomInventory roomInventory;
+    private final ObjectMapper objectMapper;
+
+    public BookingStatusUpdater(JdbcTemplate jdbcTemplate,
+                                BookingRepository bookingRepository,
+                                RoomInventory roomInventory,
+                                ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bookingRepository = bookingRepository;
+        this.roomInventory = roomInventory;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return количество бронирований, статус которых реально изменился
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int apply(List<BookingProcessedEvent> events) {
+        List<Object[]> confirmed = new ArrayList<>();
+        List<Object[]> rejected = new ArrayList<>();
+        List<UUID> rejectedIds = new ArrayList<>();
+
+        for (BookingProcessedEvent event : events) {
+            UUID bookingId = parseId(event.bookingId());
+            if (bookingId == null) {
+                log.warn("Некорректный bookingId {} в результате оркестрации, пропускаем", event.bookingId());
+            } else if ("CONFIRMED".equals(event.status())) {
+                confirmed.add(new Object[]{
+                        event.finalPrice(),
+                        event.discountPercentage(),
+                        event.userId(),
+                        recommendationsJson(event),
+                        bookingId
+                });
+            } else if ("REJECTED".equals(event.status())) {
+                rejected.add(new Object[]{event.rejectionReason(), bookingId});
+                rejectedIds.add(bookingId);
+            } else {
+                log.warn("Неизвестный статус {} для бронирования {}, пропускаем", event.status(), event.bookingId());
+            }
+        }
+
+        int changed = 0;
+        if (!confirmed.isEmpty()) {
+            changed += sum(jdbcTemplate.batchUpdate(CONFIRM_SQL, confirmed));
+        }
+        if (!rejected.isEmpty()) {
+            int[] counts = jdbcTemplate.batchUpdate(REJECT_SQL, rejected);
+            List<UUID> released = new ArrayList<>();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    released.add(rejectedIds.get(i));
+                }
+            }
+            for (Booking booking : bookingRepository.findAllById(released)) {
+                roomInventory.release(booking);
+            }
+            changed += released.size();
+        }
+
+        log.info("Результаты оркестрации применены: {} событий (CONFIRMED {}, REJECTED {}), изменено {}",
+                events.size(), confirmed.size(), rejected.size(), changed);
+        return changed;
+    }
+
+    private String recommendationsJson(BookingProcessedEvent event) {
+        if (event.recommendations() == null || event.recommendations().isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(event.recommendations());
+        } catch (JsonProcessingException e) {
+            log.warn("Ошибка сериализации recommendations для {}", event.bookingId(), e);
+            return null;
+        }
+    }
+
+    private static UUID parseId(String bookingId) {
+        try {
+            return UUID.fromString(bookingId);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return null;
+        }
+    }
+
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += Math.max(count, 0);
+        }
+        return total;
+    }
+}
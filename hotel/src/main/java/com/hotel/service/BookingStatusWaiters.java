@@ -0,0 +1,105 @@
+package com.hotel.service;
+
+import com.hotel.api.dto.BookingResponse;
+import com.hotel.api.exception.ResourceNotFoundException;
+import com.hotel.datasource.DataSourceRouting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Реестр long-poll ожиданий статуса бронирования: bookingId → открытые DeferredResult.
+ * Ожидания завершаются из OrchestrationEventListener после коммита смены статуса
+ * (одно чтение бронирования на событие), по таймауту отдаётся текущее состояние.
+ * Реестр локален для экземпляра: если событие обработал другой экземпляр gateway,
+ * клиент получит ответ по таймауту и повторит запрос.
+ */
+@Component
+public class BookingStatusWaiters {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingStatusWaiters.class);
+
+    private final ConcurrentHashMap<String, Set<Waiter<?>>> waiters = new ConcurrentHashMap<>();
+    private final HotelService hotelService;
+    private final long maxTimeoutMs;
+
+    public BookingStatusWaiters(HotelService hotelService,
+                                @Value("${hotel.bookings.long-poll.max-timeout-ms:30000}") long maxTimeoutMs) {
+        this.hotelService = hotelService;
+        this.maxTimeoutMs = maxTimeoutMs;
+    }
+
+    public <T> DeferredResult<T> await(String bookingId, Set<String> statuses, long timeoutMs,
+                                       Function<BookingResponse, T> mapper) {
+        // 0 у DeferredResult означает «без таймаута», поэтому не меньше 1 мс
+        DeferredResult<T> result = new DeferredResult<>(Math.max(1, Math.min(timeoutMs, maxTimeoutMs)));
+        Waiter<T> waiter = new Waiter<>(statuses, result, mapper);
+
+        // регистрируемся до чтения текущего статуса, чтобы не пропустить событие между ними
+        waiters.computeIfAbsent(bookingId, k -> ConcurrentHashMap.newKeySet()).add(waiter);
+        result.onCompletion(() -> unregister(bookingId, waiter));
+        result.onTimeout(() -> waiter.complete(currentOrNull(bookingId)));
+
+        BookingResponse current;
+        try {
+            current = DataSourceRouting.onPrimary(() -> hotelService.getBooking(bookingId));
+        } catch (ResourceNotFoundException e) {
+            unregister(bookingId, waiter);
+            throw e;
+        }
+        if (statuses.isEmpty() || statuses.contains(current.getStatus())) {
+            waiter.complete(current);
+        }
+        return result;
+    }
+
+    public void statusChanged(Collection<String> bookingIds) {
+        for (String bookingId : bookingIds) {
+            Set<Waiter<?>> pending = waiters.get(bookingId);
+            if (pending == null || pending.isEmpty()) {
+                continue;
+            }
+
+            BookingResponse booking = currentOrNull(bookingId);
+            if (booking == null) {
+                continue;
+            }
+            int completed = 0;
+            for (Waiter<?> waiter : pending) {
+                if (waiter.statuses().contains(booking.getStatus()) && waiter.complete(booking)) {
+                    completed++;
+                }
+            }
+            log.debug("Бронирование {} → {}: завершено ожиданий {}", bookingId, booking.getStatus(), completed);
+        }
+    }
+
+    private BookingResponse currentOrNull(String bookingId) {
+        try {
+            // только что закоммиченный статус читаем с primary: реплика может ещё не догнать
+            return DataSourceRouting.onPrimary(() -> hotelService.getBooking(bookingId));
+        } catch (ResourceNotFoundException e) {
+            return null;
+        }
+    }
+
+    private void unregister(String bookingId, Waiter<?> waiter) {
+        waiters.computeIfPresent(bookingId, (k, set) -> {
+            set.remove(waiter);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private record Waiter<T>(Set<String> statuses, DeferredResult<T> result, Function<BookingResponse, T> mapper) {
+        boolean complete(BookingResponse booking) {
+            return result.setResult(booking != null ? mapper.apply(booking) : null);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.hotel.service;
+
+import java.util.List;
+
+/**
+ * Страница keyset-пагинации: nextCursor == null означает последнюю страницу,
+ * estimatedTotal — приблизительное общее количество (статистика БД, кэшируется).
+ */
+public record CursorPage<T>(List<T> content, int size, String nextCursor, long estimatedTotal) {
+
+    public boolean last() {
+        return nextCursor == null;
+    }
+}
@@ -2,59 +2,117 @@ package com.hotel.service;
 
 import com.hotel.api.dto.*;
 import com.hotel.api.exception.ResourceNotFoundException;
+import com.hotel.api.exception.ValidationException;
 import com.hotel.config.RabbitMQConfig;
 import com.hotel.entity.Booking;
 import com.hotel.entity.Hotel;
 import com.hotel.events.BookingCancelledEvent;
 import com.hotel.events.BookingCreatedEvent;
 import com.hotel.events.BookingPaidEvent;
+import com.hotel.events.amqp.Deadlines;
+import com.hotel.inventory.RoomInventory;
+import com.hotel.outbox.OutboxService;
 import com.hotel.repo.BookingRepository;
 import com.hotel.repo.HotelRepository;
+import com.hotel.search.HotelSearchIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class HotelService {
 
     private static final Logger log = LoggerFactory.getLogger(HotelService.class);
+    /** Статусы, в которых бронирование держит номера. */
+    private static final List<String> ROOM_HOLDING_STATUSES = List.of("PENDING", "CONFIRMED", "PAID");
 
     private final BookingRepository bookingRepository;
     private final HotelRepository hotelRepository;
-    private final RabbitTemplate rabbitTemplate;
+    private final OutboxService outboxService;
+    private final HotelSearchIndex searchIndex;
+    private final RoomInventory roomInventory;
+    private final BookingIdGenerator bookingIdGenerator;
+    private final long countCacheMs;
+    private final long sagaBudgetMs;
+
+    private volatile long cachedTotal = -1;
+    private volatile long cachedTotalAt = 0;
 
     public HotelService(BookingRepository bookingRepository,
                         HotelRepository hotelRepository,
-                        RabbitTemplate rabbitTemplate) {
+                        OutboxService outboxService,
+                        HotelSearchIndex searchIndex,
+                        RoomInventory roomInventory,
+                        BookingIdGenerator bookingIdGenerator,
+                        @Value("${hotel.bookings.count-cache-ms:30000}") long countCacheMs,
+                        @Value("${hotel.bookings.saga-budget-ms:30000}") long sagaBudgetMs) {
         this.bookingRepository = bookingRepository;
         this.hotelRepository = hotelRepository;
-        this.rabbitTemplate = rabbitTemplate;
+        this.outboxService = outboxService;
+        this.searchIndex = searchIndex;
+        this.roomInventory = roomInventory;
+        this.bookingIdGenerator = bookingIdGenerator;
+        this.countCacheMs = countCacheMs;
+        this.sagaBudgetMs = sagaBudgetMs;
     }
 
     public List<HotelSearchResponse> searchHotels(HotelSearchRequest request) {
-        List<Hotel> hotels = hotelRepository.findByCityAndAvailableTrue(request.city());
+        List<HotelSearchResponse> hotels;
+        Function<String, Integer> totalRooms;
+        if (searchIndex.isReady()) {
+            hotels = searchIndex.findByCity(request.city());
+            totalRooms = searchIndex::totalRooms;
+        } else {
+            log.debug("Индекс поиска ещё не загружен, ищем в БД: {}", request.city());
+            List<Hotel> found = hotelRepository.findByCityAndAvailableTrue(request.city());
+            hotels = found.stream()
+                    .map(h -> new HotelSearchResponse(
+                            h.getHotelId(),
+                            h.getName(),
+                            h.getCity(),
+                            h.getAddress(),
+                            h.getPricePerNight(),
+                            h.getAvailable()
+                    ))
+                    .collect(Collectors.toList());
+            Map<String, Integer> rooms = found.stream()
+                    .filter(h -> h.getTotalRooms() != null)
+                    .collect(Collectors.toMap(Hotel::getHotelId, Hotel::getTotalRooms));
+            totalRooms = rooms::get;
+        }
+
+        LocalDate checkIn = parseDate(request.checkIn());
+        LocalDate checkOut = parseDate(request.checkOut());
+        if (checkIn == null || checkOut == null || !checkOut.isAfter(checkIn)) {
+            return hotels;
+        }
+
+        int rooms = roomInventory.roomsFor(request.guests() != null ? request.guests() : 1);
         return hotels.stream()
-                .map(h -> new HotelSearchResponse(
-                        h.getHotelId(),
-                        h.getName(),
-                        h.getCity(),
-                        h.getAddress(),
-                        h.getPricePerNight(),
-                        h.getAvailable()
-                ))
+                .filter(h -> roomInventory.isAvailable(h.hotelId(), totalRooms.apply(h.hotelId()),
+                        RoomInventory.DEFAULT_ROOM_TYPE, checkIn, checkOut, rooms))
                 .collect(Collectors.toList());
     }
 
     public List<String> searchCities(String query) {
+        if (searchIndex.isReady()) {
+            return searchIndex.completeCity(query);
+        }
+
         if (query == null || query.trim().isEmpty()) {
             log.debug("Getting all cities");
             return hotelRepository.findAllDistinctCities();
@@ -82,9 +140,13 @@ public class HotelService {
         log.info("Рассчитана цена: {} ночей × {} гостей × {} = {}",
                 nights, request.guests(), hotel.getPricePerNight(), basePrice);
 
-        String bookingId = UUID.randomUUID().toString();
+        int rooms = roomInventory.roomsFor(request.guests());
+        roomInventory.reserve(hotel, RoomInventory.DEFAULT_ROOM_TYPE, checkIn, checkOut, rooms);
+
+        UUID id = bookingIdGenerator.next();
+        String bookingId = id.toString();
         Booking booking = new Booking();
-        booking.setBookingId(bookingId);
+        booking.setBookingId(id);
         booking.setHotelId(request.hotelId());
         booking.setStatus("PENDING");
         booking.setCustomerName(request.customerName());
@@ -92,9 +154,12 @@ public class HotelService {
         booking.setCheckIn(LocalDate.parse(request.checkIn()));
         booking.setCheckOut(LocalDate.parse(request.checkOut()));
         booking.setGuests(request.guests());
+        booking.setRoomType(RoomInventory.DEFAULT_ROOM_TYPE);
+        booking.setRooms(rooms);
 
         Booking saved = bookingRepository.save(booking);
 
+        long createdAt = System.currentTimeMillis();
         BookingCreatedEvent event = new BookingCreatedEvent(
                 bookingId,
                 request.userId(),
@@ -105,13 +170,17 @@ public class HotelService {
                 request.checkOut(),
                 nights,
                 hotel.getPricePerNight(),
-                basePrice
+                basePrice,
+                createdAt
         );
 
-        rabbitTemplate.convertAndSend(
+        // после дедлайна оркестратор не тратит время на скидки, а сразу отклоняет бронирование
+        outboxService.enqueue(
+                bookingId,
                 RabbitMQConfig.EXCHANGE_NAME,
                 RabbitMQConfig.ROUTING_KEY_BOOKING_CREATED,
-                event
+                event,
+                Map.of(Deadlines.HEADER, createdAt + sagaBudgetMs)
         );
 
         return toResponse(saved);
@@ -119,45 +188,95 @@ public class HotelService {
 
     @Transactional
     public StatusResponse cancelBooking(CancelBookingRequest request) {
-        Booking booking = bookingRepository.findById(request.bookingId())
-                .orElseThrow(() -> new ResourceNotFoundException("Booking", request.bookingId()));
+        Booking booking = findBooking(request.bookingId());
 
-        booking.setStatus("CANCELLED");
-        bookingRepository.save(booking);
+        // параллельный REJECT оркестратора освобождает те же ночи: освобождает тот, чей UPDATE прошёл
+        if (bookingRepository.updateStatus(booking.getBookingId(), "CANCELLED", ROOM_HOLDING_STATUSES) > 0) {
+            roomInventory.release(booking);
+        } else {
+            bookingRepository.updateStatus(booking.getBookingId(), "CANCELLED", List.of("REJECTED"));
+        }
 
         BookingCancelledEvent event = new BookingCancelledEvent(
                 request.bookingId(),
                 booking.getCustomerEmail()
         );
 
-        try {
-            rabbitTemplate.convertAndSend(
-                    RabbitMQConfig.EXCHANGE_NAME,
-                    RabbitMQConfig.ROUTING_KEY_BOOKING_CANCELLED,
-                    event
-            );
-        } catch (Exception e) {
-            log.error("Ошибка при публикации BookingCancelledEvent для booking_id: {}", request.bookingId(), e);
-        }
+        outboxService.enqueue(
+                request.bookingId(),
+                RabbitMQConfig.EXCHANGE_NAME,
+                RabbitMQConfig.ROUTING_KEY_BOOKING_CANCELLED,
+                event
+        );
 
         return new StatusResponse("success", null);
     }
 
+    @Transactional(readOnly = true)
     public BookingResponse getBooking(String id) {
-        Booking booking = bookingRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Booking", id));
+        Booking booking = findBooking(id);
         return toResponse(booking);
     }
 
+    /** OFFSET-пагинация в том же порядке по bookingId, что и keyset, — переход page 0 → 1 без пропусков. */
+    @Transactional(readOnly = true)
     public Page<BookingResponse> listBookings(int page, int size) {
-        Page<Booking> bookingsPage = bookingRepository.findAll(PageRequest.of(page, size));
+        Page<Booking> bookingsPage = bookingRepository.findAll(PageRequest.of(page, size, Sort.by("bookingId")));
         return bookingsPage.map(this::toResponse);
     }
 
+    /**
+     * Keyset-пагинация по bookingId: каждая страница — индексный диапазон после курсора,
+     * без OFFSET и без COUNT(*) на каждый запрос.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<BookingResponse> listBookings(String cursor, int size) {
+        Limit limit = Limit.of(size + 1);
+        List<Booking> rows = cursor == null || cursor.isBlank()
+                ? bookingRepository.findAllByOrderByBookingIdAsc(limit)
+                : bookingRepository.findByBookingIdGreaterThanOrderByBookingIdAsc(decodeCursor(cursor), limit);
+
+        boolean hasNext = rows.size() > size;
+        List<Booking> content = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? encodeCursor(content.get(content.size() - 1).getBookingId().toString()) : null;
+
+        return new CursorPage<>(
+                content.stream().map(this::toResponse).collect(Collectors.toList()),
+                size,
+                nextCursor,
+                estimatedBookingCount()
+        );
+    }
+
+    private long estimatedBookingCount() {
+        long now = System.currentTimeMillis();
+        if (cachedTotal >= 0 && now - cachedTotalAt < countCacheMs) {
+            return cachedTotal;
+        }
+
+        Long estimate = bookingRepository.estimateCount();
+        long total = estimate != null && estimate >= 0 ? estimate : bookingRepository.count();
+        cachedTotal = total;
+        cachedTotalAt = now;
+        return total;
+    }
+
+    private static String encodeCursor(String bookingId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(bookingId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static UUID decodeCursor(String cursor) {
+        try {
+            return UUID.fromString(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Некорректный cursor: " + cursor);
+        }
+    }
+
     @Transactional
     public BookingResponse payBooking(PaymentRequest request) {
-        Booking booking = bookingRepository.findById(request.bookingId())
-                .orElseThrow(() -> new ResourceNotFoundException("Booking", request.bookingId()));
+        Booking booking = findBooking(request.bookingId());
 
         if (!"CONFIRMED".equals(booking.getStatus())) {
             throw new IllegalArgumentException("Можно оплатить только подтвержденные бронирования");
@@ -174,7 +293,7 @@ public class HotelService {
                 request.bookingId(), request.paymentMethod(), booking.getFinalPrice());
 
         BookingPaidEvent event = new BookingPaidEvent(
-                booking.getBookingId(),
+                booking.getBookingId().toString(),
                 booking.getCustomerEmail(),
                 booking.getCustomerName(),
                 booking.getFinalPrice(),
@@ -182,23 +301,39 @@ public class HotelService {
                 System.currentTimeMillis()
         );
 
+        outboxService.enqueue(
+                booking.getBookingId().toString(),
+                RabbitMQConfig.EXCHANGE_NAME,
+                RabbitMQConfig.ROUTING_KEY_BOOKING_PAID,
+                event
+        );
+        log.info("BookingPaidEvent записан в outbox для booking_id: {}", booking.getBookingId());
+
+        return toResponse(saved);
+    }
+
+    private Booking findBooking(String id) {
+        UUID bookingId;
         try {
-            rabbitTemplate.convertAndSend(
-                    RabbitMQConfig.EXCHANGE_NAME,
-                    RabbitMQConfig.ROUTING_KEY_BOOKING_PAID,
-                    event
-            );
-            log.info("BookingPaidEvent отправлен для booking_id: {}", booking.getBookingId());
-        } catch (Exception e) {
-            log.error("Ошибка при публикации BookingPaidEvent", e);
+            bookingId = UUID.fromString(id);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new ResourceNotFoundException("Booking", id);
         }
+        return bookingRepository.findById(bookingId)
+                .orElseThrow(() -> new ResourceNotFoundException("Booking", id));
+    }
 
-        return toResponse(saved);
+    private static LocalDate parseDate(String value) {
+        try {
+            return value != null ? LocalDate.parse(value) : null;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
     }
 
     private BookingResponse toResponse(Booking b) {
         return new BookingResponse(
-                b.getBookingId(),
+                b.getBookingId().toString(),
                 b.getHotelId(),
                 b.getStatus(),
                 b.getCustomerName(),
@@ -0,0 +1,14 @@
+-- Переход bookings.booking_id со строкового UUID (VARCHAR) на нативный uuid.
+-- Выполняется при каждом старте до инициализации JPA и ничего не делает, если колонка уже uuid
+-- или таблицы ещё нет (её создаст Hibernate).
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1
+               FROM information_schema.columns
+               WHERE table_name = 'bookings'
+                 AND column_name = 'booking_id'
+                 AND data_type = 'character varying') THEN
+        ALTER TABLE bookings ALTER COLUMN booking_id TYPE uuid USING booking_id::uuid;
+    END IF;
+END
+$$^^^
@@ -87,6 +87,37 @@ const API = {
     },
 
 
+    /**
+     * Текущий статус бронирования
+     */
+    async getBookingStatus(bookingId) {
+        return this.getBooking(bookingId);
+    },
+
+    /**
+     * Long-poll: ждать, пока статус станет одним из statuses (или истечёт timeoutSec).
+     * Возвращает текущее состояние бронирования в любом случае.
+     */
+    async waitForBookingStatus(bookingId, statuses, timeoutSec, signal) {
+        const params = new URLSearchParams({
+            waitFor: statuses.join(','),
+            timeout: `${timeoutSec}s`
+        });
+        const response = await fetch(`${CONFIG.GATEWAY_URL}/bookings/${bookingId}?${params}`, { signal });
+
+        if (!response.ok) {
+            const errorData = await response.json();
+            throw new ApiError(errorData, response.status);
+        }
+
+        const text = await response.text();
+        if (!text) {
+            return null;
+        }
+        const data = JSON.parse(text);
+        return data.content || data;
+    },
+
     /**
      * Оплатить бронирование
      */
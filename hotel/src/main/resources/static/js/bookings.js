@@ -330,19 +330,23 @@ function showPriceWaitingState(state) {
 }
 
 /**
- * ✅ Polling с обновлением прогресс-бара
+ * ✅ Long-poll статуса с обновлением прогресс-бара:
+ * сервер держит запрос до смены статуса (или 20 сек), вместо опроса каждые 2 сек
  */
 function startPricePolling(bookingId) {
-    const MAX_ATTEMPTS = 60; // 120 секунд (60 × 2 сек)
-    let attempts = 0;
+    const MAX_WAIT_MS = 120000;
+    const LONG_POLL_SEC = 20;
+    const startedAt = Date.now();
 
-    STATE.pollingInterval = setInterval(async () => {
-        attempts++;
-
-        console.log(`🔄 Polling booking status (${attempts}/${MAX_ATTEMPTS})`);
+    if (STATE.pollingAbort) {
+        STATE.pollingAbort.abort();
+    }
+    const controller = new AbortController();
+    STATE.pollingAbort = controller;
 
-        // Обновляем прогресс бар
-        const progress = (attempts / MAX_ATTEMPTS) * 100;
+    const progressTimer = setInterval(() => {
+        const elapsed = Date.now() - startedAt;
+        const progress = Math.min(100, (elapsed / MAX_WAIT_MS) * 100);
         const progressBar = document.querySelector('.polling-progress');
         const progressText = document.querySelector('.polling-text');
 
@@ -350,50 +354,66 @@ function startPricePolling(bookingId) {
             progressBar.style.width = progress + '%';
         }
         if (progressText) {
-            progressText.textContent = `Checking status... (${attempts}/${MAX_ATTEMPTS})`;
+            progressText.textContent = `Waiting for confirmation... (${Math.round(elapsed / 1000)}s)`;
         }
+    }, 1000);
+    STATE.pollingInterval = progressTimer;
 
-        try {
-            const status = await API.getBookingStatus(bookingId);
-
-            if (status.status === 'CONFIRMED' && status.finalPrice > 0) {
-                clearInterval(STATE.pollingInterval);
-                clearAllTimeouts();
-
-                showToast('✅ Booking confirmed!', 'success');
-
-                handlePriceUpdate({
-                    bookingId: status.bookingId,
-                    status: 'CONFIRMED',
-                    finalPrice: status.finalPrice,
-                    discountPercentage: status.discount,
-                    recommendations: status.recommendations || [],
-                    timestamp: Date.now()
-                });
-
-            } else if (status.status === 'REJECTED') {
-                clearInterval(STATE.pollingInterval);
-                clearAllTimeouts();
-
-                showToast('❌ Booking rejected: ' + (status.rejectionReason || 'Unknown'), 'error');
-                setTimeout(() => closeModal(), 2000);
+    const finish = () => {
+        clearInterval(progressTimer);
+        if (STATE.pollingAbort === controller) {
+            STATE.pollingAbort = null;
+        }
+    };
 
-            } else if (attempts >= MAX_ATTEMPTS) {
-                // После 120 секунд - финальная ошибка
-                clearInterval(STATE.pollingInterval);
+    (async () => {
+        while (!controller.signal.aborted) {
+            if (Date.now() - startedAt >= MAX_WAIT_MS) {
+                finish();
                 showBookingTimeout(bookingId);
+                return;
             }
 
-        } catch (error) {
-            console.error('❌ Polling error:', error);
+            try {
+                console.log(`🔄 Waiting for booking status (long-poll ${LONG_POLL_SEC}s)`);
+                const status = await API.waitForBookingStatus(
+                    bookingId, ['CONFIRMED', 'REJECTED'], LONG_POLL_SEC, controller.signal);
+
+                if (status && status.status === 'CONFIRMED' && status.finalPrice > 0) {
+                    finish();
+                    clearAllTimeouts();
+
+                    showToast('✅ Booking confirmed!', 'success');
+
+                    handlePriceUpdate({
+                        bookingId: status.bookingId,
+                        status: 'CONFIRMED',
+                        finalPrice: status.finalPrice,
+                        discountPercentage: status.discount,
+                        recommendations: status.recommendations || [],
+                        timestamp: Date.now()
+                    });
+                    return;
+
+                } else if (status && status.status === 'REJECTED') {
+                    finish();
+                    clearAllTimeouts();
+
+                    showToast('❌ Booking rejected: ' + (status.rejectionReason || 'Unknown'), 'error');
+                    setTimeout(() => closeModal(), 2000);
+                    return;
+                }
 
-            if (attempts >= MAX_ATTEMPTS) {
-                clearInterval(STATE.pollingInterval);
-                showBookingTimeout(bookingId);
+            } catch (error) {
+                if (controller.signal.aborted) {
+                    break;
+                }
+                console.error('❌ Long-poll error:', error);
+                await new Promise(resolve => setTimeout(resolve, 2000));
             }
         }
-
-    }, 2000);
+        finish();
+    })();
 }
 
 /**
@@ -537,6 +557,11 @@ function clearAllTimeouts() {
         clearInterval(STATE.pollingInterval);
         STATE.pollingInterval = null;
     }
+
+    if (STATE.pollingAbort) {
+        STATE.pollingAbort.abort();
+        STATE.pollingAbort = null;
+    }
 }
 
 /**
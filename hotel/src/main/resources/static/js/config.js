@@ -42,7 +42,8 @@ const STATE = {
     // ✅ Таймеры для управления ожиданием
     warningTimeout: null,
     fallbackTimeout: null,
-    pollingInterval: null
+    pollingInterval: null,
+    pollingAbort: null
 };
 
 console.log('✅ Config loaded');
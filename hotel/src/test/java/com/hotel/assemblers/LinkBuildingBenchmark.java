@@ -0,0 +1,110 @@
+package com.hotel.assemblers;
+
+import com.hotel.api.dto.BookingResponse;
+import com.hotel.api.dto.CancelBookingRequest;
+import com.hotel.controller.HotelController;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+/**
+ * Время построения ссылок бронирования: linkTo(methodOn(...)) на каждый элемент, как было до LinkTemplates,
+ * против шаблонов, разобранных при старте, с базовым URI, вычисленным один раз на запрос.
+ * Заодно проверяет, что оба способа дают одинаковые href.
+ * <p>
+ * Запуск (не тест, surefire его не подхватывает):
+ * <pre>
+ * mvn -pl hotel test-compile dependency:build-classpath \
+ *     -Dmdep.includeScope=test -Dmdep.outputFile=target/cp.txt
+ * java -cp hotel/target/classes:hotel/target/test-classes:$(cat hotel/target/cp.txt) \
+ *     com.hotel.assemblers.LinkBuildingBenchmark [requests] [pageSize] [rounds]
+ * </pre>
+ * Каждый запрос — новый MockHttpServletRequest и страница из pageSize бронирований.
+ * Время — лучший из rounds прогонов, наносекунды на одну модель.
+ */
+public class LinkBuildingBenchmark {
+
+    public static void main(String[] args) {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int pageSize = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        List<BookingResponse> page = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            page.add(new BookingResponse(UUID.randomUUID().toString(), "hotel-7", "CONFIRMED", "Иван Петров",
+                    "ivan@example.com", "2026-11-01", "2026-11-05", 2, 433.8, 10.0));
+        }
+
+        BookingModelAssembler templates = new BookingModelAssembler(new LinkTemplates());
+        Function<BookingResponse, EntityModel<BookingResponse>> methodOn = LinkBuildingBenchmark::methodOnModel;
+
+        bindRequest();
+        for (BookingResponse booking : page) {
+            check(methodOn.apply(booking), templates.toModel(booking));
+        }
+        RequestContextHolder.resetRequestAttributes();
+
+        System.out.printf("Время на модель, нс (лучший из %d прогонов по %d запросов × %d бронирований):%n",
+                rounds, requests, pageSize);
+        System.out.printf("  %-16s %6d%n", "linkTo/methodOn", measure(methodOn, page, requests, rounds));
+        System.out.printf("  %-16s %6d%n", "LinkTemplates", measure(templates::toModel, page, requests, rounds));
+    }
+
+    /** Ссылки в том виде, в каком BookingModelAssembler строил их до LinkTemplates. */
+    private static EntityModel<BookingResponse> methodOnModel(BookingResponse booking) {
+        return EntityModel.of(booking,
+                linkTo(methodOn(HotelController.class).getBooking(booking.getBookingId())).withSelfRel(),
+                linkTo(methodOn(HotelController.class).cancelBooking(
+                        new CancelBookingRequest(booking.getBookingId()))).withRel("cancel"),
+                Link.of(UriComponentsBuilder.fromPath("/api/bookings")
+                        .queryParam("page", 0)
+                        .queryParam("size", 10)
+                        .toUriString()).withRel("collection"));
+    }
+
+    private static long measure(Function<BookingResponse, EntityModel<BookingResponse>> assembler,
+                                List<BookingResponse> page, int requests, int rounds) {
+        long best = Long.MAX_VALUE;
+        Object sink = null;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (int r = 0; r < requests; r++) {
+                bindRequest();
+                for (BookingResponse booking : page) {
+                    sink = assembler.apply(booking);
+                }
+            }
+            best = Math.min(best, (System.nanoTime() - start) / ((long) requests * page.size()));
+        }
+        RequestContextHolder.resetRequestAttributes();
+        if (sink == null) {
+            throw new IllegalStateException("Модели не построены");
+        }
+        return best;
+    }
+
+    private static void bindRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/bookings");
+        request.setServerName("hotel.example.com");
+        request.setServerPort(8080);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private static void check(EntityModel<BookingResponse> expected, EntityModel<BookingResponse> actual) {
+        // Link из methodOn несёт ещё и affordances, сравниваем отрисованные href и rel
+        if (!expected.getLinks().toString().equals(actual.getLinks().toString())) {
+            throw new IllegalStateException("Ссылки различаются: " + expected.getLinks() + " → " + actual.getLinks());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.hotel.search;
+
+import com.hotel.api.dto.HotelSearchRequest;
+import com.hotel.api.dto.HotelSearchResponse;
+import com.hotel.entity.Hotel;
+import com.hotel.inventory.RoomInventory;
+import com.hotel.outbox.OutboxService;
+import com.hotel.repo.BookingRepository;
+import com.hotel.repo.HotelRepository;
+import com.hotel.repo.RoomNightRepository;
+import com.hotel.service.BookingIdGenerator;
+import com.hotel.service.HotelService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Изменение отеля через JPA-листенер не должно терять его номерной фонд в индексе поиска:
+ * без totalRooms фильтр доступности откатывается к hotel.inventory.default-rooms.
+ */
+class HotelIndexEntityListenerTest {
+
+    private static final int DEFAULT_ROOMS = 1;
+
+    private HotelSearchIndex index;
+    private HotelIndexEntityListener listener;
+    private HotelService hotelService;
+
+    @BeforeEach
+    void setUp() {
+        index = new HotelSearchIndex(10);
+        listener = new HotelIndexEntityListener(index, mock(ApplicationEventPublisher.class));
+        RoomInventory roomInventory = new RoomInventory(mock(RoomNightRepository.class), DEFAULT_ROOMS, 2, 400);
+        hotelService = new HotelService(mock(BookingRepository.class), mock(HotelRepository.class),
+                mock(OutboxService.class), index, roomInventory, mock(BookingIdGenerator.class), 30_000, 30_000);
+    }
+
+    @Test
+    void updatedHotelKeepsItsCapacityInSearch() {
+        Hotel hotel = hotel("Гранд");
+        index.rebuild(List.of(hotel));
+        assertThat(searchForSixGuests()).extracting(HotelSearchResponse::hotelId).containsExactly("hotel-1");
+
+        // вне транзакции листенер применяет изменение сразу
+        listener.onSaved(hotel("Гранд Отель"));
+
+        assertThat(index.totalRooms("hotel-1")).isEqualTo(5);
+        assertThat(searchForSixGuests())
+                .extracting(HotelSearchResponse::name)
+                .containsExactly("Гранд Отель");
+    }
+
+    private List<HotelSearchResponse> searchForSixGuests() {
+        // шесть гостей — три номера, больше DEFAULT_ROOMS, но меньше номерного фонда отеля
+        return hotelService.searchHotels(new HotelSearchRequest("Москва", "2026-11-01", "2026-11-03", 6));
+    }
+
+    private static Hotel hotel(String name) {
+        Hotel hotel = new Hotel("hotel-1", name, "Москва", "Тверская, 1", 100.0, true);
+        hotel.setTotalRooms(5);
+        return hotel;
+    }
+}